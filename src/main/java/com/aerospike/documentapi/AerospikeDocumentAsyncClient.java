@@ -0,0 +1,834 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.listener.BatchOperateListListener;
+import com.aerospike.client.listener.BatchRecordSequenceListener;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.documentapi.batch.BatchOperation;
+import com.aerospike.documentapi.batch.CoalescedBatchOperation;
+import com.aerospike.documentapi.batch.GetBatchOperation;
+import com.aerospike.documentapi.jsonpath.JsonPathParser;
+import com.aerospike.documentapi.jsonpath.JsonPathQuery;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.ConcurrencyControl;
+import com.aerospike.documentapi.policy.DocumentPolicy;
+import com.aerospike.documentapi.policy.RetryPolicy;
+import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.util.Utils;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous object for accessing and mutating documents, performing the commands on the Aerospike event loops.
+ * <p>
+ * The steps of 2-step operations are chained without blocking, and conflicting writes are retried after
+ * the backoff of the {@link RetryPolicy} scheduled on an event loop. Local key locks and the expansion of list
+ * wildcards into 1-step operations are not applied.
+ */
+public class AerospikeDocumentAsyncClient implements IAerospikeDocumentAsyncClient {
+
+    private final IAerospikeClient client;
+    private final EventLoops eventLoops;
+    private final WritePolicy readPolicy;
+    private final WritePolicy writePolicy;
+    private final BatchPolicy batchPolicy;
+    private final RetryPolicy retryPolicy;
+    private final ConcurrencyControl concurrencyControl;
+    private final int readBatchSize;
+    private final int maxReadBatchesInFlight;
+    // runs the JSONPath queries and emits the results of streamed reads off the event loops
+    private final Executor executor;
+    private final boolean pipelineBatches;
+    private final int maxPipelinedWriteBatches;
+    private final RetryStatistics retryStatistics = new RetryStatistics();
+
+    public AerospikeDocumentAsyncClient(IAerospikeClient client, EventLoops eventLoops) {
+        this.client = client;
+        this.eventLoops = eventLoops;
+        this.readPolicy = toWritePolicy(client.getReadPolicyDefault());
+        this.writePolicy = client.getWritePolicyDefault();
+        this.batchPolicy = client.getBatchPolicyDefault();
+        this.retryPolicy = RetryPolicy.NO_RETRY;
+        this.concurrencyControl = ConcurrencyControl.LAST_UPDATE_TIME;
+        this.readBatchSize = 100;
+        this.maxReadBatchesInFlight = 4;
+        this.executor = ForkJoinPool.commonPool();
+        this.pipelineBatches = false;
+        this.maxPipelinedWriteBatches = 4;
+    }
+
+    public AerospikeDocumentAsyncClient(IAerospikeClient client, EventLoops eventLoops,
+                                        DocumentPolicy documentPolicy) {
+        this.client = client;
+        this.eventLoops = eventLoops;
+        this.readPolicy = toWritePolicy(documentPolicy.getReadPolicy());
+        this.writePolicy = documentPolicy.getWritePolicy();
+        this.batchPolicy = documentPolicy.getBatchPolicy();
+        this.retryPolicy = documentPolicy.getRetryPolicy() == null
+                ? RetryPolicy.NO_RETRY
+                : documentPolicy.getRetryPolicy();
+        this.concurrencyControl = documentPolicy.getConcurrencyControl() == null
+                ? ConcurrencyControl.LAST_UPDATE_TIME
+                : documentPolicy.getConcurrencyControl();
+        this.readBatchSize = requirePositive(documentPolicy.getReadBatchSize(), "read batch size");
+        this.maxReadBatchesInFlight = requirePositive(documentPolicy.getMaxReadBatchesInFlight(),
+                "number of read batches in flight");
+        this.executor = documentPolicy.getStreamExecutor() == null
+                ? ForkJoinPool.commonPool()
+                : documentPolicy.getStreamExecutor();
+        this.pipelineBatches = documentPolicy.isPipelineBatches();
+        this.maxPipelinedWriteBatches = requirePositive(documentPolicy.getMaxPipelinedWriteBatches(),
+                "number of pipelined write batches in flight");
+    }
+
+    @Override
+    public PreparedDocumentPath prepare(String jsonPath) {
+        return JsonPathParser.prepare(jsonPath);
+    }
+
+    @Override
+    public CompletableFuture<Object> get(Key key, String binName, String jsonPath) {
+        return get(key, binName, prepare(jsonPath));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> get(Key key, Collection<String> binNames, String jsonPath) {
+        return get(key, binNames, prepare(jsonPath));
+    }
+
+    @Override
+    public CompletableFuture<Object> get(Key key, String binName, PreparedDocumentPath preparedPath) {
+        return get(key, Collections.singletonList(binName), preparedPath).thenApply(result -> result.get(binName));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> get(Key key, Collection<String> binNames,
+                                                      PreparedDocumentPath preparedPath) {
+        CompletableFuture<Record> read = operate(readPolicy, key,
+                () -> getReadOperations(binNames, preparedPath, false));
+        if (!preparedPath.requiresJsonPathQuery()) {
+            return read.thenApply(rec -> rec == null ? new HashMap<>() : rec.bins);
+        }
+        // the query is applied off the event loop
+        return read.thenApplyAsync(rec -> {
+            Map<String, Object> result = rec == null ? new HashMap<>() : rec.bins;
+            result.replaceAll((k, v) -> JsonPathQuery.read(preparedPath, v));
+            return result;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Key key, String binName, JsonNode jsonObject) {
+        return write(key, () -> new Operation[]{Operation.put(Utils.createBinByJsonNodeType(binName, jsonObject))});
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Key key, String binName, String jsonPath, Object object) {
+        return put(key, Collections.singletonList(binName), prepare(jsonPath), object);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Key key, Collection<String> binNames, String jsonPath, Object object) {
+        return put(key, binNames, prepare(jsonPath), object);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Key key, String binName, PreparedDocumentPath preparedPath, Object object) {
+        return put(key, Collections.singletonList(binName), preparedPath, object);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                       Object object) {
+        if (preparedPath.requiresJsonPathQuery()) {
+            return update(key, binNames, preparedPath, value -> JsonPathQuery.putOrSet(preparedPath, value, object));
+        }
+        return write(key, () -> toOperations(binNames, binName -> preparedPath.getPutOperation(binName, object)));
+    }
+
+    @Override
+    public CompletableFuture<Void> append(Key key, String binName, String jsonPath, Object object) {
+        return append(key, Collections.singletonList(binName), prepare(jsonPath), object);
+    }
+
+    @Override
+    public CompletableFuture<Void> append(Key key, Collection<String> binNames, String jsonPath, Object object) {
+        return append(key, binNames, prepare(jsonPath), object);
+    }
+
+    @Override
+    public CompletableFuture<Void> append(Key key, String binName, PreparedDocumentPath preparedPath,
+                                          Object object) {
+        return append(key, Collections.singletonList(binName), preparedPath, object);
+    }
+
+    @Override
+    public CompletableFuture<Void> append(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                          Object object) {
+        if (preparedPath.requiresJsonPathQuery()) {
+            return update(key, binNames, preparedPath, value -> JsonPathQuery.append(preparedPath, value, object));
+        }
+        return write(key, () -> toOperations(binNames, binName -> preparedPath.getAppendOperation(binName, object)));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Key key, String binName, String jsonPath) {
+        return delete(key, Collections.singletonList(binName), prepare(jsonPath));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Key key, Collection<String> binNames, String jsonPath) {
+        return delete(key, binNames, prepare(jsonPath));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Key key, String binName, PreparedDocumentPath preparedPath) {
+        return delete(key, Collections.singletonList(binName), preparedPath);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
+        if (preparedPath.requiresJsonPathQuery()) {
+            return update(key, binNames, preparedPath, value -> JsonPathQuery.delete(preparedPath, value));
+        }
+        return write(key, () -> toOperations(binNames, binName -> preparedPath.getDeleteOperations(binName)[0]));
+    }
+
+    @Override
+    public CompletableFuture<List<BatchRecord>> batchPerform(List<BatchOperation> batchOperations) {
+        List<BatchOperation> coalesced = CoalescedBatchOperation.coalesce(batchOperations);
+        // the first step records read what the check of concurrent updates of this client requires
+        coalesced.stream()
+                .filter(BatchOperation::isRequiringJsonPathQuery)
+                .forEach(batchOperation -> batchOperation.setFirstStepRecord(concurrencyControl));
+        CompletableFuture<Void> performed = new CompletableFuture<>();
+        batchPerform(coalesced, 1, System.currentTimeMillis(), performed);
+        return performed.thenApply(v -> {
+            coalesced.stream()
+                    .filter(CoalescedBatchOperation.class::isInstance)
+                    .forEach(batchOperation -> ((CoalescedBatchOperation) batchOperation).complete());
+            return batchOperations.stream()
+                    .map(BatchOperation::getBatchRecord)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Override
+    public Publisher<DocumentResult> getAll(Publisher<Key> keys, Collection<String> binNames, String jsonPath) {
+        return getAll(keys, binNames, prepare(jsonPath));
+    }
+
+    @Override
+    public Publisher<DocumentResult> getAll(Publisher<Key> keys, Collection<String> binNames,
+                                            PreparedDocumentPath preparedPath) {
+        return subscriber -> {
+            Objects.requireNonNull(subscriber, "subscriber");
+            StreamedRead streamedRead = new StreamedRead(binNames, preparedPath, subscriber);
+            subscriber.onSubscribe(streamedRead);
+            keys.subscribe(streamedRead);
+        };
+    }
+
+    @Override
+    public RetryStatistics getRetryStatistics() {
+        return retryStatistics;
+    }
+
+    // a read of many keys by batches, the keys are requested as the subscriber requests results
+    private final class StreamedRead implements Subscription, Subscriber<Key> {
+
+        private final Collection<String> binNames;
+        private final PreparedDocumentPath preparedPath;
+        private final Subscriber<? super DocumentResult> subscriber;
+        // the number of signals to process, the drain loop is run by one thread at a time
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final Queue<DocumentResult> results = new ArrayDeque<>();
+        private final List<Key> pendingKeys = new ArrayList<>();
+        private Subscription keySubscription;
+        private long requested;
+        private long keysRequested;
+        private int keysInFlight;
+        private int batchesInFlight;
+        private boolean keysDone;
+        private Throwable error;
+        private boolean cancelled;
+        private boolean terminated;
+
+        private StreamedRead(Collection<String> binNames, PreparedDocumentPath preparedPath,
+                             Subscriber<? super DocumentResult> subscriber) {
+            this.binNames = binNames;
+            this.preparedPath = preparedPath;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException("Non-positive number of results requested: " + n));
+                } else {
+                    requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            Subscription subscription;
+            synchronized (this) {
+                cancelled = true;
+                results.clear();
+                pendingKeys.clear();
+                subscription = keysDone ? null : keySubscription;
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            boolean subscribed;
+            synchronized (this) {
+                subscribed = keySubscription == null && !cancelled;
+                if (subscribed) {
+                    keySubscription = subscription;
+                }
+            }
+            if (!subscribed) {
+                subscription.cancel();
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void onNext(Key key) {
+            synchronized (this) {
+                if (cancelled || keysDone) {
+                    return;
+                }
+                pendingKeys.add(key);
+                keysRequested--;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            synchronized (this) {
+                keysDone = true;
+                fail(throwable);
+            }
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (this) {
+                keysDone = true;
+            }
+            drain();
+        }
+
+        // called holding the lock, the error is signalled by the drain loop
+        private void fail(Throwable throwable) {
+            if (error == null) {
+                error = throwable;
+            }
+        }
+
+        private void drain() {
+            if (pendingDrains.getAndIncrement() != 0) {
+                return;
+            }
+            int drains = 1;
+            do {
+                drainOnce();
+                drains = pendingDrains.addAndGet(-drains);
+            } while (drains != 0);
+        }
+
+        // emits the results requested, starts the batches of the keys received and requests the keys of the results
+        // requested, keeping at most one batch of keys more than the batches in flight
+        private void drainOnce() {
+            if (!emit()) {
+                return;
+            }
+            List<List<Key>> batches = new ArrayList<>();
+            long keysToRequest;
+            Subscription subscription;
+            synchronized (this) {
+                while (batchesInFlight < maxReadBatchesInFlight && !pendingKeys.isEmpty()
+                        && (pendingKeys.size() >= readBatchSize || keysRequested == 0 || keysDone)) {
+                    List<Key> batchKeys = pendingKeys.subList(0, Math.min(readBatchSize, pendingKeys.size()));
+                    batches.add(new ArrayList<>(batchKeys));
+                    batchKeys.clear();
+                    batchesInFlight++;
+                    keysInFlight += batches.get(batches.size() - 1).size();
+                }
+                long expected = keysInFlight + pendingKeys.size() + keysRequested;
+                long capacity = (long) (maxReadBatchesInFlight + 1) * readBatchSize - expected - results.size();
+                keysToRequest = keysDone || keySubscription == null ? 0 : Math.min(requested - expected, capacity);
+                if (keysToRequest > 0) {
+                    keysRequested += keysToRequest;
+                }
+                subscription = keySubscription;
+            }
+            batches.forEach(this::read);
+            if (keysToRequest > 0) {
+                subscription.request(keysToRequest);
+            }
+        }
+
+        // returns false if the subscriber has been terminated
+        private boolean emit() {
+            while (true) {
+                DocumentResult result = null;
+                Throwable failure = null;
+                Subscription subscription = null;
+                synchronized (this) {
+                    if (cancelled || terminated) {
+                        return false;
+                    }
+                    if (error != null) {
+                        terminated = true;
+                        failure = error;
+                        results.clear();
+                        subscription = keysDone ? null : keySubscription;
+                    } else if (requested > 0 && !results.isEmpty()) {
+                        result = results.remove();
+                        if (requested != Long.MAX_VALUE) {
+                            requested--;
+                        }
+                    } else if (keysDone && results.isEmpty() && pendingKeys.isEmpty() && batchesInFlight == 0) {
+                        terminated = true;
+                    } else {
+                        return true;
+                    }
+                }
+                if (failure != null) {
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                    subscriber.onError(failure);
+                    return false;
+                }
+                if (result == null) {
+                    subscriber.onComplete();
+                    return false;
+                }
+                subscriber.onNext(result);
+            }
+        }
+
+        private void read(List<Key> batchKeys) {
+            CompletableFuture<List<BatchRecord>> batchRecords;
+            try {
+                batchRecords = batchPerform(batchKeys.stream()
+                        .map(key -> new GetBatchOperation(key, binNames, preparedPath))
+                        .collect(Collectors.toList()));
+            } catch (RuntimeException e) {
+                batchRecords = new CompletableFuture<>();
+                batchRecords.completeExceptionally(toDocumentException(e));
+            }
+            batchRecords.whenComplete((records, throwable) -> {
+                synchronized (this) {
+                    batchesInFlight--;
+                    keysInFlight -= batchKeys.size();
+                    if (throwable != null) {
+                        fail(unwrap(throwable));
+                    } else if (!cancelled) {
+                        records.forEach(batchRecord -> results.add(toDocumentResult(batchRecord)));
+                    }
+                }
+                // the subscriber and the key publisher are not called on the event loop
+                executor.execute(this::drain);
+            });
+        }
+    }
+
+    private static DocumentResult toDocumentResult(BatchRecord batchRecord) {
+        return new DocumentResult(batchRecord.key,
+                batchRecord.resultCode == ResultCode.OK && batchRecord.record != null ? batchRecord.record.bins : null,
+                batchRecord.resultCode);
+    }
+
+    // performs the operations and retries the 2-step ones whose records have been updated concurrently
+    private void batchPerform(List<BatchOperation> batchOperations, int attempt, long startTime,
+                              CompletableFuture<Void> result) {
+        CompletableFuture<Void> performed = pipelineBatches
+                ? performPipelined(batchOperations)
+                : perform(batchOperations);
+        performed.whenComplete((v, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(unwrap(throwable));
+                return;
+            }
+            List<BatchOperation> conflicting = batchOperations.stream()
+                    .filter(AerospikeDocumentClient::isConflict)
+                    .collect(Collectors.toList());
+            if (conflicting.isEmpty()) {
+                result.complete(null);
+                return;
+            }
+            retryStatistics.addConflicts(conflicting.size());
+            long backoff = retryPolicy.getBackoff(attempt);
+            if (!retryPolicy.canRetry(attempt, startTime, backoff)) {
+                retryStatistics.addFailures(conflicting.size());
+                result.complete(null);
+                return;
+            }
+            retryStatistics.addRetries(conflicting.size());
+            conflicting.forEach(batchOperation -> batchOperation.setFirstStepRecord(concurrencyControl));
+            schedule(() -> batchPerform(conflicting, attempt + 1, startTime, result), backoff);
+        });
+    }
+
+    private CompletableFuture<Void> perform(List<BatchOperation> batchOperations) {
+        // collecting first step operations
+        List<BatchRecord> firstStepRecords = batchOperations.stream()
+                .map(BatchOperation::getBatchRecord)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        // the JSONPath queries of the second step are applied off the event loop
+        return batchOperate(firstStepRecords).thenComposeAsync(v -> {
+            // collecting non-empty second step records without json parsing error
+            List<BatchRecord> secondStepRecords = batchOperations.stream()
+                    .map(BatchOperation::setSecondStepRecordAndGet)
+                    .filter(Objects::nonNull)
+                    .filter(batchRec -> batchRec.resultCode != -2)
+                    .collect(Collectors.toList());
+            return batchOperate(secondStepRecords);
+        }, executor);
+    }
+
+    // reads the first step records by a batch streaming them and writes the second step ones as they become ready
+    private CompletableFuture<Void> performPipelined(List<BatchOperation> batchOperations) {
+        PipelinedBatch pipelinedBatch = new PipelinedBatch();
+        List<BatchOperation> twoStepOperations = new ArrayList<>();
+        List<BatchRecord> firstStepRecords = new ArrayList<>();
+        for (BatchOperation batchOperation : batchOperations) {
+            if (batchOperation.getBatchRecord() == null) {
+                // 1-step operations are written right away
+                pipelinedBatch.setSecondStepRecord(batchOperation);
+            } else {
+                twoStepOperations.add(batchOperation);
+                firstStepRecords.add(batchOperation.getBatchRecord());
+            }
+        }
+        pipelinedBatch.write();
+        if (firstStepRecords.isEmpty()) {
+            pipelinedBatch.readDone();
+            return pipelinedBatch.done;
+        }
+        boolean[] read = new boolean[firstStepRecords.size()];
+        try {
+            client.operate(eventLoops.next(), new BatchRecordSequenceListener() {
+                @Override
+                public void onRecord(BatchRecord record, int index) {
+                    read[index] = true;
+                    pipelinedBatch.setSecondStepRecordAsync(twoStepOperations.get(index));
+                }
+
+                @Override
+                public void onSuccess() {
+                    // the records not passed to onRecord are processed like in a phased batch
+                    for (int i = 0; i < read.length; i++) {
+                        if (!read[i]) {
+                            pipelinedBatch.setSecondStepRecordAsync(twoStepOperations.get(i));
+                        }
+                    }
+                    pipelinedBatch.readDone();
+                }
+
+                @Override
+                public void onFailure(AerospikeException e) {
+                    pipelinedBatch.done.completeExceptionally(DocumentApiException.wrapAerospikeException(e));
+                }
+            }, batchPolicy, firstStepRecords);
+        } catch (RuntimeException e) {
+            pipelinedBatch.done.completeExceptionally(toDocumentException(e));
+        }
+        return pipelinedBatch.done;
+    }
+
+    // the second step records of a pipelined batch, the ones ready while the window is full are written together
+    private final class PipelinedBatch {
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final List<BatchRecord> readyRecords = new ArrayList<>();
+        private int writeBatchesInFlight;
+        // the number of operations whose second step records are being set off the event loop
+        private int processing;
+        private boolean reading = true;
+
+        private void setSecondStepRecord(BatchOperation batchOperation) {
+            // the JSONPath queries are applied outside the lock
+            BatchRecord batchRecord = batchOperation.setSecondStepRecordAndGet();
+            synchronized (this) {
+                addReady(batchRecord);
+            }
+        }
+
+        // sets the second step record on the executor and writes it, the event loop only hands the operation off
+        private void setSecondStepRecordAsync(BatchOperation batchOperation) {
+            synchronized (this) {
+                processing++;
+            }
+            try {
+                executor.execute(() -> {
+                    BatchRecord batchRecord;
+                    try {
+                        batchRecord = batchOperation.setSecondStepRecordAndGet();
+                    } catch (RuntimeException e) {
+                        done.completeExceptionally(toDocumentException(e));
+                        return;
+                    }
+                    synchronized (this) {
+                        processing--;
+                        addReady(batchRecord);
+                    }
+                    write();
+                });
+            } catch (RuntimeException e) {
+                done.completeExceptionally(toDocumentException(e));
+            }
+        }
+
+        // called holding the lock
+        private void addReady(BatchRecord batchRecord) {
+            if (batchRecord != null && batchRecord.resultCode != -2) {
+                readyRecords.add(batchRecord);
+            }
+        }
+
+        private void readDone() {
+            synchronized (this) {
+                reading = false;
+            }
+            write();
+        }
+
+        private void write() {
+            List<BatchRecord> batchRecords;
+            synchronized (this) {
+                if (done.isDone()) {
+                    return;
+                }
+                if (readyRecords.isEmpty() || writeBatchesInFlight >= maxPipelinedWriteBatches) {
+                    if (!reading && processing == 0 && writeBatchesInFlight == 0 && readyRecords.isEmpty()) {
+                        done.complete(null);
+                    }
+                    return;
+                }
+                batchRecords = new ArrayList<>(readyRecords);
+                readyRecords.clear();
+                writeBatchesInFlight++;
+            }
+            batchOperate(batchRecords).whenComplete((v, throwable) -> {
+                if (throwable != null) {
+                    done.completeExceptionally(unwrap(throwable));
+                    return;
+                }
+                synchronized (this) {
+                    writeBatchesInFlight--;
+                }
+                write();
+            });
+        }
+    }
+
+    private CompletableFuture<Void> update(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                           UnaryOperator<Object> query) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        update(() -> updateOnce(key, binNames, preparedPath, query), 1, System.currentTimeMillis(), result);
+        return result;
+    }
+
+    // retries a 2-step update according to the retry policy if the record has been updated concurrently
+    private void update(Supplier<CompletableFuture<Void>> attempt, int attemptNumber, long startTime,
+                        CompletableFuture<Void> result) {
+        attempt.get().whenComplete((v, throwable) -> {
+            if (throwable == null) {
+                result.complete(null);
+                return;
+            }
+            Throwable cause = unwrap(throwable);
+            if (!(cause instanceof DocumentApiException)
+                    || !AerospikeDocumentClient.isConflict(
+                    AerospikeDocumentClient.getResultCode((DocumentApiException) cause))) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            retryStatistics.addConflicts(1);
+            long backoff = retryPolicy.getBackoff(attemptNumber);
+            if (!retryPolicy.canRetry(attemptNumber, startTime, backoff)) {
+                retryStatistics.addFailures(1);
+                result.completeExceptionally(cause);
+                return;
+            }
+            retryStatistics.addRetries(1);
+            schedule(() -> update(attempt, attemptNumber + 1, startTime, result), backoff);
+        });
+    }
+
+    // applies a 2-step query to the bins and writes back only the changes if the record has not been updated since
+    private CompletableFuture<Void> updateOnce(Key key, Collection<String> binNames,
+                                               PreparedDocumentPath preparedPath, UnaryOperator<Object> query) {
+        boolean withLut = concurrencyControl == ConcurrencyControl.LAST_UPDATE_TIME;
+        // the query and the diff are computed off the event loop
+        Supplier<Operation[]> readOperations = () -> getReadOperations(binNames, preparedPath, withLut);
+        return operate(writePolicy, key, readOperations).thenComposeAsync(rec -> {
+            if (rec == null || rec.bins == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            List<Operation> operations = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : rec.bins.entrySet()) {
+                if (entry.getKey().equals(Lut.LUT_BIN)) {
+                    continue;
+                }
+                // the query modifies the given value, so it is applied to a copy
+                Object queryResult = query.apply(Utils.deepCopy(entry.getValue()));
+                Collections.addAll(operations,
+                        preparedPath.getUpdateOperations(entry.getKey(), entry.getValue(), queryResult));
+            }
+            // nothing has changed
+            if (operations.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            WritePolicy checkedPolicy = AerospikeDocumentClient.getCheckedPolicy(writePolicy, concurrencyControl, rec);
+            return operate(checkedPolicy, key, () -> operations.toArray(new Operation[0])).thenApply(r -> null);
+        }, executor);
+    }
+
+    private CompletableFuture<Void> write(Key key, Supplier<Operation[]> operations) {
+        return operate(writePolicy, key, operations).thenApply(rec -> null);
+    }
+
+    // the operations are created by the supplier so that their errors complete the future
+    private CompletableFuture<Record> operate(WritePolicy policy, Key key, Supplier<Operation[]> operations) {
+        CompletableFuture<Record> future = new CompletableFuture<>();
+        try {
+            client.operate(eventLoops.next(), new RecordListener() {
+                @Override
+                public void onSuccess(Key key, Record record) {
+                    future.complete(record);
+                }
+
+                @Override
+                public void onFailure(AerospikeException e) {
+                    future.completeExceptionally(DocumentApiException.wrapAerospikeException(e));
+                }
+            }, policy, key, operations.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(toDocumentException(e));
+        }
+        return future;
+    }
+
+    private CompletableFuture<Void> batchOperate(List<BatchRecord> batchRecords) {
+        if (batchRecords.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            client.operate(eventLoops.next(), new BatchOperateListListener() {
+                @Override
+                public void onSuccess(List<BatchRecord> records, boolean status) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void onFailure(AerospikeException e) {
+                    future.completeExceptionally(DocumentApiException.wrapAerospikeException(e));
+                }
+            }, batchPolicy, batchRecords);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(toDocumentException(e));
+        }
+        return future;
+    }
+
+    private void schedule(Runnable runnable, long delay) {
+        if (delay > 0) {
+            eventLoops.next().schedule(runnable, delay, TimeUnit.MILLISECONDS);
+        } else {
+            runnable.run();
+        }
+    }
+
+    private static Operation[] getReadOperations(Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                                 boolean withLut) {
+        List<Operation> operations = new ArrayList<>(binNames.size() + 1);
+        binNames.forEach(binName -> operations.add(preparedPath.getReadOperations(binName, false)[0]));
+        if (withLut) {
+            operations.add(Lut.LUT_READ_OP);
+        }
+        return operations.toArray(new Operation[0]);
+    }
+
+    private static Operation[] toOperations(Collection<String> binNames, Function<String, Operation> operation) {
+        return binNames.stream()
+                .map(operation)
+                .toArray(Operation[]::new);
+    }
+
+    private static WritePolicy toWritePolicy(Policy readPolicy) {
+        return (WritePolicy) AerospikeDocumentClient.toWritePolicy(readPolicy);
+    }
+
+    private static DocumentApiException toDocumentException(RuntimeException e) {
+        return e instanceof DocumentApiException
+                ? (DocumentApiException) e
+                : DocumentApiException.toDocumentException(e);
+    }
+
+    // the exceptions of dependent stages are wrapped
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(String.format("The %s must be positive", name));
+        }
+        return value;
+    }
+}
@@ -1,64 +1,190 @@
 package com.aerospike.documentapi;
 
+import com.aerospike.client.AerospikeException;
 import com.aerospike.client.BatchRecord;
 import com.aerospike.client.IAerospikeClient;
 import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
 import com.aerospike.client.policy.BatchPolicy;
 import com.aerospike.client.policy.Policy;
 import com.aerospike.client.policy.WritePolicy;
 import com.aerospike.documentapi.batch.BatchOperation;
-import com.aerospike.documentapi.jsonpath.JsonPathObject;
+import com.aerospike.documentapi.batch.CoalescedBatchOperation;
+import com.aerospike.documentapi.batch.GetBatchOperation;
 import com.aerospike.documentapi.jsonpath.JsonPathParser;
 import com.aerospike.documentapi.jsonpath.JsonPathQuery;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.ConcurrencyControl;
 import com.aerospike.documentapi.policy.DocumentPolicy;
+import com.aerospike.documentapi.policy.RetryPolicy;
+import com.aerospike.documentapi.util.Generation;
 import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.util.Utils;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Primary object for accessing and mutating documents.
  */
 public class AerospikeDocumentClient implements IAerospikeDocumentClient {
 
+    // the number of parallel tasks processing a batch and of threads of the default batch executor
+    private static final int BATCH_CHUNKS = Runtime.getRuntime().availableProcessors();
+
     private final AerospikeDocumentRepository aerospikeDocumentRepository;
     private final Policy readPolicy;
     private final WritePolicy writePolicy;
     private final BatchPolicy batchPolicy;
+    private final RetryPolicy retryPolicy;
+    private final ConcurrencyControl concurrencyControl;
+    private final boolean expandListWildcards;
+    private final Executor batchExecutor;
+    private final int minParallelBatchSize;
+    private final RetryStatistics retryStatistics = new RetryStatistics();
+    private final LockStatistics lockStatistics = new LockStatistics();
+    // null if 2-step writes of the same key are not serialized locally
+    private final KeyLocks keyLocks;
 
     public AerospikeDocumentClient(IAerospikeClient client) {
         this.aerospikeDocumentRepository = new AerospikeDocumentRepository(client);
-        this.readPolicy = client.getReadPolicyDefault();
+        this.readPolicy = toWritePolicy(client.getReadPolicyDefault());
         this.writePolicy = client.getWritePolicyDefault();
         this.batchPolicy = client.getBatchPolicyDefault();
+        this.retryPolicy = RetryPolicy.NO_RETRY;
+        this.concurrencyControl = ConcurrencyControl.LAST_UPDATE_TIME;
+        this.expandListWildcards = false;
+        this.batchExecutor = BatchExecutorHolder.EXECUTOR;
+        this.minParallelBatchSize = 64;
+        this.keyLocks = null;
     }
 
     public AerospikeDocumentClient(IAerospikeClient client, DocumentPolicy documentPolicy) {
         this.aerospikeDocumentRepository = new AerospikeDocumentRepository(client);
-        this.readPolicy = documentPolicy.getReadPolicy();
+        this.readPolicy = toWritePolicy(documentPolicy.getReadPolicy());
         this.writePolicy = documentPolicy.getWritePolicy();
         this.batchPolicy = documentPolicy.getBatchPolicy();
+        this.retryPolicy = documentPolicy.getRetryPolicy() == null
+                ? RetryPolicy.NO_RETRY
+                : documentPolicy.getRetryPolicy();
+        this.concurrencyControl = documentPolicy.getConcurrencyControl() == null
+                ? ConcurrencyControl.LAST_UPDATE_TIME
+                : documentPolicy.getConcurrencyControl();
+        this.expandListWildcards = documentPolicy.isExpandListWildcards();
+        this.batchExecutor = documentPolicy.getBatchExecutor() == null
+                ? BatchExecutorHolder.EXECUTOR
+                : documentPolicy.getBatchExecutor();
+        this.minParallelBatchSize = documentPolicy.getMinParallelBatchSize();
+        this.keyLocks = documentPolicy.getLockStripes() > 0
+                ? new KeyLocks(documentPolicy.getLockStripes(), lockStatistics)
+                : null;
+    }
+
+    @Override
+    public PreparedDocumentPath prepare(String jsonPath) {
+        return JsonPathParser.prepare(jsonPath);
     }
 
     @Override
     public Object get(Key key, String binName, String jsonPath) {
-        return get(key, Collections.singletonList(binName), jsonPath).get(binName);
+        return get(key, binName, prepare(jsonPath));
     }
 
     @Override
     public Map<String, Object> get(Key key, Collection<String> binNames, String jsonPath) {
-        JsonPathObject jsonPathObject = new JsonPathParser().parse(jsonPath);
+        return get(key, binNames, prepare(jsonPath));
+    }
 
+    @Override
+    public Object get(Key key, String binName, PreparedDocumentPath preparedPath) {
+        return get(key, Collections.singletonList(binName), preparedPath).get(binName);
+    }
+
+    @Override
+    public Map<String, Object> get(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
+        if (preparedPath.isServerSideGet() && !binNames.isEmpty()) {
+            Map<String, Object> result = getServerSide(key, binNames, preparedPath);
+            if (result != null) {
+                return result;
+            }
+        }
         Map<String, Object> result = aerospikeDocumentRepository.get(readPolicy, key,
-                binNames, jsonPathObject);
-        if (jsonPathObject.requiresJsonPathQuery()) {
-            result.replaceAll((k, v) -> JsonPathQuery.read(jsonPathObject, v));
+                binNames, preparedPath);
+        if (preparedPath.requiresJsonPathQuery()) {
+            result.replaceAll((k, v) -> JsonPathQuery.read(preparedPath, v));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> get(Key key, String binName, Collection<String> jsonPaths) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        get(key, Collections.singletonList(binName), jsonPaths)
+                .forEach((jsonPath, values) -> result.put(jsonPath, values.get(binName)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> get(Key key, Collection<String> binNames, Collection<String> jsonPaths) {
+        Map<String, PreparedDocumentPath> preparedPaths = new LinkedHashMap<>();
+        jsonPaths.forEach(jsonPath -> preparedPaths.computeIfAbsent(jsonPath, this::prepare));
+        List<PreparedDocumentPath> queryPaths = preparedPaths.values().stream()
+                .filter(PreparedDocumentPath::requiresJsonPathQuery)
+                .collect(Collectors.toList());
+
+        // the 1-step paths and the common prefix of the 2-step paths are read by one operate command
+        List<PreparedDocumentPath> readPaths = preparedPaths.values().stream()
+                .filter(preparedPath -> !preparedPath.requiresJsonPathQuery())
+                .collect(Collectors.toList());
+        PreparedDocumentPath prefixPath = null;
+        if (!queryPaths.isEmpty()) {
+            prefixPath = PreparedDocumentPath.commonPrefix(queryPaths);
+            readPaths.add(prefixPath);
+        }
+        List<Operation> operations = new ArrayList<>(binNames.size() * readPaths.size());
+        for (String binName : binNames) {
+            readPaths.forEach(readPath -> operations.add(readPath.getReadOperations(binName, false)[0]));
+        }
+        Record rec = operations.isEmpty() ? null
+                : aerospikeDocumentRepository.getRecord(readPolicy, key, operations.toArray(new Operation[0]));
+
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        preparedPaths.keySet().forEach(jsonPath -> result.put(jsonPath, new HashMap<>()));
+        for (String binName : binNames) {
+            List<?> values = getOperationResults(rec, binName, readPaths.size());
+            for (Map.Entry<String, PreparedDocumentPath> entry : preparedPaths.entrySet()) {
+                PreparedDocumentPath preparedPath = entry.getValue();
+                Object value;
+                if (preparedPath.requiresJsonPathQuery()) {
+                    Object data = preparedPath.getFirstStepData(prefixPath, values.get(readPaths.size() - 1));
+                    value = data == null ? null : JsonPathQuery.read(preparedPath, data);
+                } else {
+                    value = values.get(readPaths.indexOf(preparedPath));
+                }
+                result.get(entry.getKey()).put(binName, value);
+            }
         }
         return result;
     }
@@ -70,86 +196,242 @@ public class AerospikeDocumentClient implements IAerospikeDocumentClient {
 
     @Override
     public void put(Key key, String binName, String jsonPath, Object object) {
-        put(key, Collections.singletonList(binName), jsonPath, object);
+        put(key, Collections.singletonList(binName), prepare(jsonPath), object);
     }
 
     @Override
     public void put(Key key, Collection<String> binNames, String jsonPath, Object object) {
-        JsonPathObject jsonPathObject = new JsonPathParser().parse(jsonPath);
-        if (jsonPathObject.requiresJsonPathQuery()) {
-            JsonPathObject originalJsonPathObject = jsonPathObject.copy();
-            Map<String, Object> result = aerospikeDocumentRepository.get(writePolicy, key,
-                    binNames, jsonPathObject, true);
-            Map<String, Object> queryResults = result.entrySet().stream()
-                    .filter(entry -> !entry.getKey().equals(Lut.LUT_BIN))
-                    .collect(Collectors.toMap(
-                            Map.Entry::getKey,
-                            entry -> JsonPathQuery.putOrSet(jsonPathObject, entry.getValue(), object))
-                    );
-            aerospikeDocumentRepository.put(getLutPolicy(result), key, queryResults, originalJsonPathObject);
+        put(key, binNames, prepare(jsonPath), object);
+    }
+
+    @Override
+    public void put(Key key, String binName, PreparedDocumentPath preparedPath, Object object) {
+        put(key, Collections.singletonList(binName), preparedPath, object);
+    }
+
+    @Override
+    public void put(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath, Object object) {
+        if (preparedPath.requiresJsonPathQuery()) {
+            update(key, binNames, preparedPath, value -> JsonPathQuery.putOrSet(preparedPath, value, object),
+                    (binName, size, attempt) -> preparedPath.getExpandedPutOperations(binName, size, object, attempt),
+                    PreparedDocumentPath.EXPANDED_PUT_ATTEMPTS);
         } else {
-            aerospikeDocumentRepository.put(writePolicy, key, binNames, object, jsonPathObject);
+            aerospikeDocumentRepository.put(writePolicy, key, binNames, object, preparedPath);
         }
     }
 
+    @Override
+    public void putAll(Key key, String binName, Map<String, Object> jsonPathObjects) {
+        putAll(key, Collections.singletonList(binName), jsonPathObjects);
+    }
+
+    @Override
+    public void putAll(Key key, Collection<String> binNames, Map<String, Object> jsonPathObjects) {
+        List<PathWrite> writes = new ArrayList<>(jsonPathObjects.size());
+        jsonPathObjects.forEach((jsonPath, object) -> {
+            PreparedDocumentPath preparedPath = prepare(jsonPath);
+            writes.add(new PathWrite(preparedPath, binName -> preparedPath.getPutOperation(binName, object),
+                    value -> JsonPathQuery.putOrSet(preparedPath, value, object)));
+        });
+        updateAll(key, binNames, writes);
+    }
+
     @Override
     public void append(Key key, String binName, String jsonPath, Object object) {
-        append(key, Collections.singletonList(binName), jsonPath, object);
+        append(key, Collections.singletonList(binName), prepare(jsonPath), object);
     }
 
     @Override
     public void append(Key key, Collection<String> binNames, String jsonPath, Object object) {
-        JsonPathObject jsonPathObject = new JsonPathParser().parse(jsonPath);
-        if (jsonPathObject.requiresJsonPathQuery()) {
-            JsonPathObject originalJsonPathObject = jsonPathObject.copy();
-            Map<String, Object> result = aerospikeDocumentRepository.get(writePolicy, key,
-                    binNames, jsonPathObject, true);
-            Map<String, Object> queryResults = result.entrySet().stream()
-                    .filter(e -> !e.getKey().equals(Lut.LUT_BIN))
-                    .collect(Collectors.toMap(
-                            Map.Entry::getKey,
-                            e -> JsonPathQuery.append(jsonPathObject, e.getValue(), object))
-                    );
-            aerospikeDocumentRepository.put(getLutPolicy(result), key, queryResults, originalJsonPathObject);
+        append(key, binNames, prepare(jsonPath), object);
+    }
+
+    @Override
+    public void append(Key key, String binName, PreparedDocumentPath preparedPath, Object object) {
+        append(key, Collections.singletonList(binName), preparedPath, object);
+    }
+
+    @Override
+    public void append(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath, Object object) {
+        if (preparedPath.requiresJsonPathQuery()) {
+            update(key, binNames, preparedPath, value -> JsonPathQuery.append(preparedPath, value, object),
+                    (binName, size, attempt) -> preparedPath.getExpandedAppendOperations(binName, size, object), 1);
         } else {
-            aerospikeDocumentRepository.append(writePolicy, key, binNames, jsonPath,
-                    object, jsonPathObject);
+            aerospikeDocumentRepository.append(writePolicy, key, binNames, object, preparedPath);
         }
     }
 
+    @Override
+    public void appendAll(Key key, String binName, Map<String, Object> jsonPathObjects) {
+        appendAll(key, Collections.singletonList(binName), jsonPathObjects);
+    }
+
+    @Override
+    public void appendAll(Key key, Collection<String> binNames, Map<String, Object> jsonPathObjects) {
+        List<PathWrite> writes = new ArrayList<>(jsonPathObjects.size());
+        jsonPathObjects.forEach((jsonPath, object) -> {
+            PreparedDocumentPath preparedPath = prepare(jsonPath);
+            writes.add(new PathWrite(preparedPath, binName -> preparedPath.getAppendOperation(binName, object),
+                    value -> JsonPathQuery.append(preparedPath, value, object)));
+        });
+        updateAll(key, binNames, writes);
+    }
+
     @Override
     public void delete(Key key, String binName, String jsonPath) {
-        delete(key, Collections.singletonList(binName), jsonPath);
+        delete(key, Collections.singletonList(binName), prepare(jsonPath));
     }
 
     @Override
     public void delete(Key key, Collection<String> binNames, String jsonPath) {
-        JsonPathObject jsonPathObject = new JsonPathParser().parse(jsonPath);
-        if (jsonPathObject.requiresJsonPathQuery()) {
-            JsonPathObject originalJsonPathObject = jsonPathObject.copy();
-            Map<String, Object> result = aerospikeDocumentRepository.get(writePolicy, key,
-                    binNames, jsonPathObject, true);
-            Map<String, Object> queryResults = result.entrySet().stream()
-                    .filter(e -> !e.getKey().equals(Lut.LUT_BIN))
-                    .collect(Collectors.toMap(
-                            Map.Entry::getKey,
-                            e -> JsonPathQuery.delete(jsonPathObject, e.getValue()))
-                    );
-            aerospikeDocumentRepository.put(getLutPolicy(result), key, queryResults, originalJsonPathObject);
+        delete(key, binNames, prepare(jsonPath));
+    }
+
+    @Override
+    public void delete(Key key, String binName, PreparedDocumentPath preparedPath) {
+        delete(key, Collections.singletonList(binName), preparedPath);
+    }
+
+    @Override
+    public void delete(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
+        if (preparedPath.isServerSideDelete() && !binNames.isEmpty() && deleteServerSide(key, binNames, preparedPath)) {
+            return;
+        }
+        if (preparedPath.requiresJsonPathQuery()) {
+            update(key, binNames, preparedPath, value -> JsonPathQuery.delete(preparedPath, value),
+                    (binName, size, attempt) -> preparedPath.getExpandedDeleteOperations(binName, size), 1);
         } else {
-            aerospikeDocumentRepository.delete(writePolicy, key, binNames, jsonPathObject);
+            aerospikeDocumentRepository.delete(writePolicy, key, binNames, preparedPath);
         }
     }
 
+    @Override
+    public void deleteAll(Key key, String binName, Collection<String> jsonPaths) {
+        deleteAll(key, Collections.singletonList(binName), jsonPaths);
+    }
+
+    @Override
+    public void deleteAll(Key key, Collection<String> binNames, Collection<String> jsonPaths) {
+        List<PathWrite> writes = new ArrayList<>(jsonPaths.size());
+        for (String jsonPath : jsonPaths) {
+            PreparedDocumentPath preparedPath = prepare(jsonPath);
+            writes.add(new PathWrite(preparedPath, binName -> preparedPath.getDeleteOperations(binName)[0],
+                    value -> JsonPathQuery.delete(preparedPath, value)));
+        }
+        updateAll(key, binNames, writes);
+    }
+
+    @Override
+    public Object increment(Key key, String binName, String jsonPath, Number delta) {
+        return increment(key, Collections.singletonList(binName), prepare(jsonPath), delta).get(binName);
+    }
+
+    @Override
+    public Map<String, Object> increment(Key key, Collection<String> binNames, String jsonPath, Number delta) {
+        return increment(key, binNames, prepare(jsonPath), delta);
+    }
+
+    @Override
+    public Object increment(Key key, String binName, PreparedDocumentPath preparedPath, Number delta) {
+        return increment(key, Collections.singletonList(binName), preparedPath, delta).get(binName);
+    }
+
+    @Override
+    public Map<String, Object> increment(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                         Number delta) {
+        Operation[] operations;
+        try {
+            operations = binNames.stream()
+                    .map(binName -> preparedPath.getIncrementOperation(binName, delta))
+                    .toArray(Operation[]::new);
+        } catch (IllegalArgumentException e) {
+            throw DocumentApiException.toDocumentException(e);
+        }
+        Record rec = aerospikeDocumentRepository.operate(writePolicy, key, operations);
+        Map<String, Object> result = new HashMap<>();
+        // the incremented values are returned by the same operation
+        binNames.forEach(binName -> result.put(binName, rec == null ? null : rec.getValue(binName)));
+        return result;
+    }
+
     @Override
     public List<BatchRecord> batchPerform(List<BatchOperation> batchOperations, boolean parallel) {
-        Map<Key, List<BatchOperation>> sameKeyGroups = groupByKeys(batchOperations);
+        // the keys of 2-step write operations, locked by each attempt if key locks are enabled
+        Set<Key> lockedKeys = keyLocks == null ? Collections.emptySet() : batchOperations.stream()
+                .filter(batchOperation -> batchOperation.isRequiringJsonPathQuery()
+                        && !(batchOperation instanceof GetBatchOperation))
+                .map(BatchOperation::getKey)
+                .collect(Collectors.toSet());
+        List<BatchOperation> coalesced = CoalescedBatchOperation.coalesce(batchOperations);
+        // the first step records read what the check of concurrent updates of this client requires
+        coalesced.stream()
+                .filter(BatchOperation::isRequiringJsonPathQuery)
+                .forEach(batchOperation -> batchOperation.setFirstStepRecord(concurrencyControl));
+        long startTime = System.currentTimeMillis();
+        List<BatchOperation> operations = coalesced;
+        for (int attempt = 1; ; attempt++) {
+            perform(operations, parallel, lockedKeys);
 
-        // validating and collecting first step operations
-        List<BatchRecord> firstStepRecords = getBatchOpStream(batchOperations, parallel)
+            // 2-step operations that failed because their records were updated concurrently
+            List<BatchOperation> conflicting = operations.stream()
+                    .filter(AerospikeDocumentClient::isConflict)
+                    .collect(Collectors.toList());
+            if (conflicting.isEmpty()) {
+                break;
+            }
+            retryStatistics.addConflicts(conflicting.size());
+            long backoff = retryPolicy.getBackoff(attempt);
+            if (!retryPolicy.canRetry(attempt, startTime, backoff) || !sleep(backoff)) {
+                retryStatistics.addFailures(conflicting.size());
+                break;
+            }
+            retryStatistics.addRetries(conflicting.size());
+            conflicting.forEach(batchOperation -> batchOperation.setFirstStepRecord(concurrencyControl));
+            operations = conflicting;
+        }
+        coalesced.stream()
+                .filter(CoalescedBatchOperation.class::isInstance)
+                .forEach(batchOperation -> ((CoalescedBatchOperation) batchOperation).complete());
+
+        // collecting resulting records
+        return batchOperations.stream()
+                .map(BatchOperation::getBatchRecord)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public RetryStatistics getRetryStatistics() {
+        return retryStatistics;
+    }
+
+    @Override
+    public LockStatistics getLockStatistics() {
+        return lockStatistics;
+    }
+
+    // serializes the attempt with 2-step updates of the same keys within this client, the locks are not held
+    // during the backoff before a retry
+    private void perform(List<BatchOperation> batchOperations, boolean parallel, Set<Key> lockedKeys) {
+        if (lockedKeys.isEmpty()) {
+            perform(batchOperations, parallel);
+            return;
+        }
+        ReentrantLock[] locks = keyLocks.lock(batchOperations.stream()
+                .map(BatchOperation::getKey)
+                .filter(lockedKeys::contains)
+                .collect(Collectors.toList()));
+        try {
+            perform(batchOperations, parallel);
+        } finally {
+            KeyLocks.unlock(locks);
+        }
+    }
+
+    private void perform(List<BatchOperation> batchOperations, boolean parallel) {
+        // collecting first step operations
+        List<BatchRecord> firstStepRecords = batchOperations.stream()
                 .map(BatchOperation::getBatchRecord)
                 .filter(Objects::nonNull)
-                .map(batchRecord -> validateAndReturn(sameKeyGroups, batchRecord))
                 .collect(Collectors.toList());
 
         // performing first step operations
@@ -158,8 +440,7 @@ public class AerospikeDocumentClient implements IAerospikeDocumentClient {
         }
 
         // collecting non-empty second step records without json parsing error
-        List<BatchRecord> secondStepRecords = getBatchOpStream(batchOperations, parallel)
-                .map(BatchOperation::setSecondStepRecordAndGet)
+        List<BatchRecord> secondStepRecords = setSecondStepRecords(batchOperations, parallel).stream()
                 .filter(Objects::nonNull)
                 .filter(batchRec -> batchRec.resultCode != -2)
                 .collect(Collectors.toList());
@@ -168,37 +449,392 @@ public class AerospikeDocumentClient implements IAerospikeDocumentClient {
         if (!secondStepRecords.isEmpty()) {
             aerospikeDocumentRepository.batchPerform(batchPolicy, secondStepRecords);
         }
+    }
 
-        // collecting resulting records
-        return getBatchOpStream(batchOperations, parallel)
-                .map(BatchOperation::getBatchRecord)
-                .collect(Collectors.toList());
+    private void update(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                        UnaryOperator<Object> query, ExpandedOperations expandedOperations, int expandedAttempts) {
+        update(key, () -> {
+            if (!expandListWildcards || !preparedPath.isExpandable()
+                    || !updateExpanded(key, binNames, preparedPath, expandedOperations, expandedAttempts)) {
+                updateOnce(key, binNames, preparedPath, query);
+            }
+        });
     }
 
-    private WritePolicy getLutPolicy(Map<String, Object> result) {
-        return Lut.setLutPolicy(new WritePolicy(writePolicy), (long) result.get(Lut.LUT_BIN));
+    // writes the 1-step paths by one operate command, together with the changes of the 2-step paths if any
+    private void updateAll(Key key, Collection<String> binNames, List<PathWrite> writes) {
+        List<Operation> operations = new ArrayList<>();
+        List<PathWrite> queryWrites = new ArrayList<>();
+        List<PathWrite> oneStepWrites = new ArrayList<>();
+        for (PathWrite write : writes) {
+            if (write.preparedPath.requiresJsonPathQuery()) {
+                // the 1-step operations are written after the changes of the 2-step paths
+                for (PathWrite oneStepWrite : oneStepWrites) {
+                    if (oneStepWrite.preparedPath.mayOverlap(write.preparedPath)) {
+                        throw new IllegalArgumentException(String.format("Path %s cannot precede the overlapping " +
+                                        "path %s requiring a JSONPath query", oneStepWrite.preparedPath.getJsonPath(),
+                                write.preparedPath.getJsonPath()));
+                    }
+                }
+                queryWrites.add(write);
+            } else {
+                oneStepWrites.add(write);
+                binNames.forEach(binName -> operations.add(write.operation.apply(binName)));
+            }
+        }
+        if (!queryWrites.isEmpty()) {
+            update(key, () -> updateAllOnce(key, binNames, queryWrites, operations));
+        } else if (!operations.isEmpty()) {
+            aerospikeDocumentRepository.operate(writePolicy, key, operations.toArray(new Operation[0]));
+        }
     }
 
-    private Map<Key, List<BatchOperation>> groupByKeys(List<BatchOperation> batchOperations) {
-        Map<Key, List<BatchOperation>> opsByKey = getBatchOpStream(batchOperations, true)
-                .collect(Collectors.groupingBy(BatchOperation::getKey));
+    // serializes each attempt of 2-step updates of the same key within this client if key locks are enabled,
+    // the lock is not held during the backoff before a retry
+    private void update(Key key, Runnable attempt) {
+        if (keyLocks == null) {
+            updateWithRetries(attempt);
+            return;
+        }
+        updateWithRetries(() -> {
+            ReentrantLock lock = keyLocks.lock(key);
+            try {
+                attempt.run();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
 
-        return opsByKey.entrySet().parallelStream()
-                .filter(entry -> entry.getValue().size() > 1)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    // retries a 2-step update according to the retry policy if the record has been updated concurrently
+    private void updateWithRetries(Runnable attempt) {
+        long startTime = System.currentTimeMillis();
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                attempt.run();
+                return;
+            } catch (DocumentApiException e) {
+                if (!isConflict(getResultCode(e))) {
+                    throw e;
+                }
+                retryStatistics.addConflicts(1);
+                long backoff = retryPolicy.getBackoff(attemptNumber);
+                if (!retryPolicy.canRetry(attemptNumber, startTime, backoff) || !sleep(backoff)) {
+                    retryStatistics.addFailures(1);
+                    throw e;
+                }
+                retryStatistics.addRetries(1);
+            }
+        }
     }
 
-    private Stream<BatchOperation> getBatchOpStream(List<BatchOperation> batchOperations, boolean parallel) {
-        Stream<BatchOperation> batchOpStream = batchOperations.stream();
-        if (parallel) batchOpStream = batchOpStream.parallel();
+    // reads only the sizes of the lists a path like $.orders[*].status iterates over and applies 1-step operations
+    // to their elements, returns false if the path has to be updated using the JSONPath query
+    private boolean updateExpanded(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                   ExpandedOperations expandedOperations, int attempts) {
+        Record rec;
+        try {
+            rec = aerospikeDocumentRepository.getListSizes(writePolicy, key, binNames, preparedPath,
+                    concurrencyControl == ConcurrencyControl.LAST_UPDATE_TIME);
+        } catch (DocumentApiException e) {
+            if (isNotApplicable(e)) {
+                return false;
+            }
+            throw e;
+        }
+        if (rec == null || rec.bins == null) {
+            return false;
+        }
+        WritePolicy checkedPolicy = getCheckedPolicy(rec);
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            List<Operation> operations = new ArrayList<>();
+            for (String binName : binNames) {
+                Object size = rec.getValue(binName);
+                if (!(size instanceof Long)) {
+                    return false;
+                }
+                try {
+                    Collections.addAll(operations, expandedOperations.get(binName, ((Long) size).intValue(), attempt));
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }
+            if (operations.isEmpty()) {
+                // the lists are empty
+                return true;
+            }
+            try {
+                aerospikeDocumentRepository.operate(checkedPolicy, key, operations.toArray(new Operation[0]));
+                return true;
+            } catch (DocumentApiException e) {
+                // an element does not have the structure the path requires
+                int resultCode = getResultCode(e);
+                if (!isNotApplicable(e) && resultCode != ResultCode.ELEMENT_NOT_FOUND
+                        && resultCode != ResultCode.ELEMENT_EXISTS) {
+                    throw e;
+                }
+            }
+        }
+        return false;
+    }
+
+    // applies a 2-step query to the bins and writes back only the changes if the record has not been updated since
+    private void updateOnce(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                            UnaryOperator<Object> query) {
+        Record rec = aerospikeDocumentRepository.getRecord(writePolicy, key, binNames, preparedPath,
+                concurrencyControl == ConcurrencyControl.LAST_UPDATE_TIME);
+        Map<String, Object> originals = new HashMap<>();
+        Map<String, Object> queryResults = new HashMap<>();
+        if (rec == null || rec.bins == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : rec.bins.entrySet()) {
+            if (entry.getKey().equals(Lut.LUT_BIN)) {
+                continue;
+            }
+            originals.put(entry.getKey(), entry.getValue());
+            // the query modifies the given value, so it is applied to a copy
+            queryResults.put(entry.getKey(), query.apply(Utils.deepCopy(entry.getValue())));
+        }
+        aerospikeDocumentRepository.update(getCheckedPolicy(rec), key, originals, queryResults, preparedPath);
+    }
+
+    // applies the 2-step queries in order to the data of their common prefix and writes back the changes followed by
+    // the 1-step operations if the record has not been updated since
+    private void updateAllOnce(Key key, Collection<String> binNames, List<PathWrite> queryWrites,
+                               List<Operation> oneStepOperations) {
+        PreparedDocumentPath prefixPath = PreparedDocumentPath.commonPrefix(queryWrites.stream()
+                .map(write -> write.preparedPath)
+                .collect(Collectors.toList()));
+        Record rec = aerospikeDocumentRepository.getRecord(writePolicy, key, binNames, prefixPath,
+                concurrencyControl == ConcurrencyControl.LAST_UPDATE_TIME);
+        if (rec == null || rec.bins == null) {
+            // there is nothing to apply the queries to
+            if (!oneStepOperations.isEmpty()) {
+                aerospikeDocumentRepository.operate(writePolicy, key, oneStepOperations.toArray(new Operation[0]));
+            }
+            return;
+        }
+        List<Operation> operations = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : rec.bins.entrySet()) {
+            if (entry.getKey().equals(Lut.LUT_BIN)) {
+                continue;
+            }
+            // the queries modify the data in place, so they are applied to a copy
+            Object updated = Utils.deepCopy(entry.getValue());
+            for (PathWrite write : queryWrites) {
+                Object data = write.preparedPath.getFirstStepData(prefixPath, updated);
+                Object result = write.query.apply(data);
+                if (data == updated) {
+                    // the path reads the whole prefix data in the first step
+                    updated = result;
+                }
+            }
+            Collections.addAll(operations,
+                    prefixPath.getUpdateOperations(entry.getKey(), entry.getValue(), updated));
+        }
+        operations.addAll(oneStepOperations);
+        if (!operations.isEmpty()) {
+            aerospikeDocumentRepository.operate(getCheckedPolicy(rec), key, operations.toArray(new Operation[0]));
+        }
+    }
 
-        return batchOpStream;
+    // returns null if the result has to be computed by the JSONPath query
+    private Map<String, Object> getServerSide(Key key, Collection<String> binNames,
+                                              PreparedDocumentPath preparedPath) {
+        int attempts = preparedPath.getServerSideGetAttempts(binNames.iterator().next());
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            Map<String, Object> result;
+            try {
+                result = aerospikeDocumentRepository.getServerSide(readPolicy, key, binNames, preparedPath, attempt);
+            } catch (DocumentApiException e) {
+                if (isNotApplicable(e)) {
+                    continue;
+                }
+                throw e;
+            }
+            for (Map.Entry<String, Object> entry : result.entrySet()) {
+                Optional<Object> value = preparedPath.toJsonPathResult(entry.getValue());
+                if (!value.isPresent()) {
+                    return null;
+                }
+                entry.setValue(value.get());
+            }
+            return result;
+        }
+        return null;
     }
 
-    private BatchRecord validateAndReturn(Map<Key, List<BatchOperation>> sameKeyGroups, BatchRecord batchRecord) {
-        if (sameKeyGroups.containsKey(batchRecord.key)) {
-            throw new IllegalArgumentException("Multiple two-step operations with the same key are not allowed");
+    // returns false if the path has to be deleted using the JSONPath query
+    private boolean deleteServerSide(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
+        int attempts = preparedPath.getServerSideDeleteAttempts(binNames.iterator().next());
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            try {
+                aerospikeDocumentRepository.deleteServerSide(writePolicy, key, binNames, preparedPath, attempt);
+                return true;
+            } catch (DocumentApiException e) {
+                if (!isNotApplicable(e)) {
+                    throw e;
+                }
+            }
         }
-        return batchRecord;
+        return false;
+    }
+
+    // the server reports an operation not matching the data type or a missing element
+    private static boolean isNotApplicable(DocumentApiException e) {
+        int resultCode = getResultCode(e);
+        return resultCode == ResultCode.BIN_TYPE_ERROR
+                || resultCode == ResultCode.OP_NOT_APPLICABLE
+                || resultCode == ResultCode.PARAMETER_ERROR;
+    }
+
+    // returns the result code of a wrapped AerospikeException, or OK for other exceptions
+    static int getResultCode(DocumentApiException e) {
+        return e.getCause() instanceof AerospikeException
+                ? ((AerospikeException) e.getCause()).getResultCode()
+                : ResultCode.OK;
+    }
+
+    static boolean isConflict(BatchOperation batchOperation) {
+        BatchRecord batchRecord = batchOperation.getBatchRecord();
+        return batchOperation.isRequiringJsonPathQuery()
+                && batchRecord != null
+                && batchRecord.hasWrite
+                && isConflict(batchRecord.resultCode);
+    }
+
+    // the record has been updated between the steps of an operation
+    static boolean isConflict(int resultCode) {
+        return resultCode == ResultCode.FILTERED_OUT || resultCode == ResultCode.GENERATION_ERROR;
+    }
+
+    // returns false if the thread has been interrupted
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // the results of several operations on a bin are returned as a list in the order of the operations
+    private static List<?> getOperationResults(Record rec, String binName, int operationCount) {
+        Object value = rec == null ? null : rec.getValue(binName);
+        if (value == null) {
+            return Collections.nCopies(operationCount, null);
+        }
+        return operationCount == 1 ? Collections.singletonList(value) : (List<?>) value;
+    }
+
+    // reads are performed using operate(), converting once instead of per call
+    static Policy toWritePolicy(Policy readPolicy) {
+        return readPolicy == null ? null : new WritePolicy(readPolicy);
+    }
+
+    private WritePolicy getCheckedPolicy(Record rec) {
+        return getCheckedPolicy(writePolicy, concurrencyControl, rec);
+    }
+
+    // the write fails if the record has been updated since it was read
+    static WritePolicy getCheckedPolicy(WritePolicy writePolicy, ConcurrencyControl concurrencyControl, Record rec) {
+        if (concurrencyControl == ConcurrencyControl.GENERATION) {
+            return Generation.setGenerationPolicy(new WritePolicy(writePolicy), rec.generation);
+        }
+        return Lut.setLutPolicy(new WritePolicy(writePolicy), rec.getLong(Lut.LUT_BIN));
+    }
+
+    // applies the JSONPath queries of the second step, in chunks on the batch executor if the batch is large enough;
+    // the calling thread processes the chunks not started yet, so it never waits for a task queued on a busy executor
+    private List<BatchRecord> setSecondStepRecords(List<BatchOperation> batchOperations, boolean parallel) {
+        int size = batchOperations.size();
+        if (!parallel || size < minParallelBatchSize) {
+            return batchOperations.stream()
+                    .map(BatchOperation::setSecondStepRecordAndGet)
+                    .collect(Collectors.toList());
+        }
+        int chunkSize = (size + BATCH_CHUNKS - 1) / BATCH_CHUNKS;
+        List<BatchChunk> chunks = new ArrayList<>(BATCH_CHUNKS);
+        for (int from = 0; from < size; from += chunkSize) {
+            chunks.add(new BatchChunk(batchOperations.subList(from, Math.min(from + chunkSize, size))));
+        }
+        for (BatchChunk chunk : chunks.subList(1, chunks.size())) {
+            try {
+                batchExecutor.execute(chunk::process);
+            } catch (RejectedExecutionException e) {
+                // processed by the calling thread
+            }
+        }
+        chunks.forEach(BatchChunk::process);
+        List<BatchRecord> result = new ArrayList<>(size);
+        try {
+            chunks.forEach(chunk -> result.addAll(chunk.result.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return result;
+    }
+
+    // the executor used if none is given, created when first used
+    private static final class BatchExecutorHolder {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+        private static final Executor EXECUTOR = Executors.newFixedThreadPool(BATCH_CHUNKS, runnable -> {
+            Thread thread = new Thread(runnable, "aerospike-document-batch-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // a part of a batch whose second step is processed by the first thread claiming it
+    private static final class BatchChunk {
+
+        private final List<BatchOperation> batchOperations;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<List<BatchRecord>> result = new CompletableFuture<>();
+
+        private BatchChunk(List<BatchOperation> batchOperations) {
+            this.batchOperations = batchOperations;
+        }
+
+        private void process() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result.complete(batchOperations.stream()
+                        .map(BatchOperation::setSecondStepRecordAndGet)
+                        .collect(Collectors.toList()));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // a write of a multi-path update, applied by an operation if the path does not require a JSONPath query
+    private static final class PathWrite {
+
+        private final PreparedDocumentPath preparedPath;
+        private final Function<String, Operation> operation;
+        private final UnaryOperator<Object> query;
+
+        private PathWrite(PreparedDocumentPath preparedPath, Function<String, Operation> operation,
+                          UnaryOperator<Object> query) {
+            this.preparedPath = preparedPath;
+            this.operation = operation;
+            this.query = query;
+        }
+    }
+
+    // creates the operations applying a 1-step write to every element of a list
+    @FunctionalInterface
+    private interface ExpandedOperations {
+
+        Operation[] get(String binName, int size, int attempt);
     }
 }
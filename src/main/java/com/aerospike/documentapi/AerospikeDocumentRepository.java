@@ -7,25 +7,21 @@ import com.aerospike.client.IAerospikeClient;
 import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
-import com.aerospike.client.cdt.MapOperation;
 import com.aerospike.client.policy.BatchPolicy;
 import com.aerospike.client.policy.Policy;
 import com.aerospike.client.policy.WritePolicy;
-import com.aerospike.documentapi.jsonpath.JsonPathObject;
-import com.aerospike.documentapi.jsonpath.PathDetails;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 import com.aerospike.documentapi.util.Lut;
 import com.aerospike.documentapi.util.Utils;
 import com.fasterxml.jackson.databind.JsonNode;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static com.aerospike.documentapi.util.Utils.createBin;
-import static com.aerospike.documentapi.util.Utils.getPathDetails;
 
 class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
 
@@ -37,53 +33,78 @@ class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
 
     @Override
     public Map<String, Object> get(Policy readPolicy, Key key, Collection<String> binNames,
-                                   JsonPathObject jsonPathObject) {
-        return get(readPolicy, key, binNames, jsonPathObject, false);
+                                   PreparedDocumentPath preparedPath) {
+        return get(readPolicy, key, binNames, preparedPath, false);
     }
 
     @Override
     public Map<String, Object> get(Policy readPolicy, Key key, Collection<String> binNames,
-                                   JsonPathObject jsonPathObject, boolean withLut) {
-        Map<String, Object> results = new HashMap<>();
-        // If there are no parts, retrieve the full document
-        if (jsonPathObject.getTokensNotRequiringSecondStepQuery().isEmpty()) {
-            List<Operation> operations = new ArrayList<>();
+                                   PreparedDocumentPath preparedPath, boolean withLut) {
+        return toBins(getRecord(readPolicy, key, binNames, preparedPath, withLut));
+    }
+
+    @Override
+    public Record getRecord(Policy readPolicy, Key key, Collection<String> binNames,
+                            PreparedDocumentPath preparedPath, boolean withLut) {
+        Operation[] operations;
+        if (binNames.size() == 1) {
+            operations = preparedPath.getReadOperations(binNames.iterator().next(), withLut);
+        } else {
+            operations = new Operation[withLut ? binNames.size() + 1 : binNames.size()];
+            int i = 0;
             for (String binName : binNames) {
-                operations.add(Operation.get(binName));
+                operations[i++] = preparedPath.getReadOperations(binName, withLut)[0];
             }
             if (withLut) {
-                operations.add(Lut.LUT_READ_OP);
-            }
-            WritePolicy writePolicy = readPolicy == null ? null : new WritePolicy(readPolicy);
-            Record rec = client.operate(writePolicy, key, operations.toArray(new Operation[0]));
-            if (rec != null) {
-                results.putAll(rec.bins);
+                operations[i] = Lut.LUT_READ_OP;
             }
-        } else { // else retrieve using pure contexts
-            PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
+        }
+        return read(readPolicy, key, operations);
+    }
 
-            List<Operation> operations = binNames.stream()
-                    .map(binName -> pathDetails.getFinalToken().toAerospikeGetOperation(
-                            binName,
-                            pathDetails.getCtxArray())
-                    ).collect(Collectors.toList());
+    @Override
+    public Record getListSizes(Policy readPolicy, Key key, Collection<String> binNames,
+                               PreparedDocumentPath preparedPath, boolean withLut) {
+        Operation[] operations = new Operation[withLut ? binNames.size() + 1 : binNames.size()];
+        int i = 0;
+        for (String binName : binNames) {
+            operations[i++] = preparedPath.getListSizeOperation(binName);
+        }
+        if (withLut) {
+            operations[i] = Lut.LUT_READ_OP;
+        }
+        return read(readPolicy, key, operations);
+    }
 
-            if (withLut) {
-                operations.add(Lut.LUT_READ_OP);
-            }
+    @Override
+    public Map<String, Object> getServerSide(Policy readPolicy, Key key, Collection<String> binNames,
+                                             PreparedDocumentPath preparedPath, int attempt) {
+        Operation[] operations;
+        if (binNames.size() == 1) {
+            operations = preparedPath.getServerSideReadOperations(binNames.iterator().next(), attempt);
+        } else {
+            operations = binNames.stream()
+                    .flatMap(binName -> Arrays.stream(preparedPath.getServerSideReadOperations(binName, attempt)))
+                    .toArray(Operation[]::new);
+        }
+        return toBins(read(readPolicy, key, operations));
+    }
 
-            Record rec;
-            try {
-                WritePolicy writePolicy = readPolicy == null ? null : new WritePolicy(readPolicy);
-                rec = client.operate(writePolicy, key, operations.toArray(new Operation[0]));
-            } catch (AerospikeException e) {
-                throw DocumentApiException.toDocumentException(e);
-            }
-            if (rec != null) {
-                results.putAll(rec.bins);
-            }
+    @Override
+    public Record getRecord(Policy readPolicy, Key key, Operation[] operations) {
+        return read(readPolicy, key, operations);
+    }
+
+    private Record read(Policy readPolicy, Key key, Operation[] operations) {
+        try {
+            return client.operate(toWritePolicy(readPolicy), key, operations);
+        } catch (AerospikeException e) {
+            throw DocumentApiException.toDocumentException(e);
         }
-        return results;
+    }
+
+    private static Map<String, Object> toBins(Record rec) {
+        return rec == null ? new HashMap<>() : rec.bins;
     }
 
     @Override
@@ -98,27 +119,19 @@ class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
 
     @Override
     public void put(WritePolicy writePolicy, Key key, Collection<String> binNames, Object jsonObject,
-                    JsonPathObject jsonPathObject) {
+                    PreparedDocumentPath preparedPath) {
         Operation[] operations;
         // If there are no parts, put the full document
-        if (jsonPathObject.getTokensNotRequiringSecondStepQuery().isEmpty()) {
+        if (preparedPath.isWholeBin()) {
             operations = binNames.stream()
-                    .map(binName -> {
-                        Bin bin = createBin(binName, jsonObject);
-                        return Operation.put(bin);
-                    })
+                    .map(binName -> preparedPath.getPutOperation(binName, jsonObject))
                     .toArray(Operation[]::new);
             client.operate(writePolicy, key, operations);
         } else { // else put using contexts
-            PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
-
             try {
                 operations = binNames.stream()
-                        .map(binName -> pathDetails.getFinalToken().toAerospikePutOperation(
-                                binName,
-                                jsonObject,
-                                pathDetails.getCtxArray())
-                        ).toArray(Operation[]::new);
+                        .map(binName -> preparedPath.getPutOperation(binName, jsonObject))
+                        .toArray(Operation[]::new);
                 client.operate(writePolicy, key, operations);
             } catch (AerospikeException e) {
                 throw DocumentApiException.toDocumentException(e);
@@ -127,10 +140,11 @@ class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
     }
 
     @Override
-    public void put(WritePolicy writePolicy, Key key, Map<String, Object> queryResults, JsonPathObject jsonPathObject) {
+    public void put(WritePolicy writePolicy, Key key, Map<String, Object> queryResults,
+                    PreparedDocumentPath preparedPath) {
         Operation[] operations;
         // If there are no parts, put the full document
-        if (jsonPathObject.getTokensNotRequiringSecondStepQuery().isEmpty()) {
+        if (preparedPath.isWholeBin()) {
             operations = queryResults.entrySet().stream()
                     .map(e -> {
                         Bin bin = createBin(e.getKey(), e.getValue());
@@ -139,14 +153,12 @@ class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
                     .toArray(Operation[]::new);
             client.operate(writePolicy, key, operations);
         } else { // else put using contexts
-            PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
-
             try {
                 operations = queryResults.entrySet().stream()
-                        .map(entry -> pathDetails.getFinalToken().toAerospikePutOperation(
+                        .map(entry -> preparedPath.getFinalToken().toAerospikePutOperation(
                                 entry.getKey(),
                                 entry.getValue(),
-                                pathDetails.getCtxArray())
+                                preparedPath.getCtxArray())
                         ).toArray(Operation[]::new);
                 client.operate(writePolicy, key, operations);
             } catch (AerospikeException e) {
@@ -156,21 +168,45 @@ class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
     }
 
     @Override
-    public void append(WritePolicy writePolicy, Key key, Collection<String> binNames, String jsonPath,
-                       Object jsonObject, JsonPathObject jsonPathObject) {
+    public void update(WritePolicy writePolicy, Key key, Map<String, Object> originals,
+                       Map<String, Object> queryResults, PreparedDocumentPath preparedPath) {
+        try {
+            Operation[] operations = queryResults.entrySet().stream()
+                    .flatMap(entry -> Arrays.stream(preparedPath.getUpdateOperations(
+                            entry.getKey(),
+                            originals.get(entry.getKey()),
+                            entry.getValue()))
+                    ).toArray(Operation[]::new);
+            // nothing has changed
+            if (operations.length == 0) {
+                return;
+            }
+            client.operate(writePolicy, key, operations);
+        } catch (AerospikeException e) {
+            throw DocumentApiException.toDocumentException(e);
+        }
+    }
+
+    @Override
+    public Record operate(WritePolicy writePolicy, Key key, Operation[] operations) {
+        try {
+            return client.operate(writePolicy, key, operations);
+        } catch (AerospikeException e) {
+            throw DocumentApiException.toDocumentException(e);
+        }
+    }
+
+    @Override
+    public void append(WritePolicy writePolicy, Key key, Collection<String> binNames, Object jsonObject,
+                       PreparedDocumentPath preparedPath) {
         // If there are no parts, you can't append
-        if (jsonPathObject.getTokensNotRequiringSecondStepQuery().isEmpty()) {
-            throw new DocumentApiException.JsonAppendException(jsonPath);
+        if (preparedPath.isWholeBin()) {
+            throw new DocumentApiException.JsonAppendException(preparedPath.getJsonPath());
         } else {
-            PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(), false);
-
             try {
                 Operation[] operations = binNames.stream()
-                        .map(binName -> pathDetails.getFinalToken().toAerospikeAppendOperation(
-                                binName,
-                                jsonObject,
-                                pathDetails.getCtxArray())
-                        ).toArray(Operation[]::new);
+                        .map(binName -> preparedPath.getAppendOperation(binName, jsonObject))
+                        .toArray(Operation[]::new);
                 client.operate(writePolicy, key, operations);
             } catch (AerospikeException e) {
                 throw DocumentApiException.toDocumentException(e);
@@ -179,26 +215,38 @@ class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
     }
 
     @Override
-    public void delete(WritePolicy writePolicy, Key key, Collection<String> binNames, JsonPathObject jsonPathObject) {
-        // If there are no parts, put an empty map in each given bin
-        if (jsonPathObject.getTokensNotRequiringSecondStepQuery().isEmpty()) {
-            Operation[] operations = binNames.stream()
-                    .map(MapOperation::clear)
+    public void delete(WritePolicy writePolicy, Key key, Collection<String> binNames,
+                       PreparedDocumentPath preparedPath) {
+        Operation[] operations;
+        if (binNames.size() == 1) {
+            operations = preparedPath.getDeleteOperations(binNames.iterator().next());
+        } else {
+            operations = binNames.stream()
+                    .map(binName -> preparedPath.getDeleteOperations(binName)[0])
                     .toArray(Operation[]::new);
+        }
+        try {
             client.operate(writePolicy, key, operations);
-        } else {
-            PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
+        } catch (AerospikeException e) {
+            throw DocumentApiException.toDocumentException(e);
+        }
+    }
 
-            try {
-                Operation[] operations = binNames.stream()
-                        .map(bName -> pathDetails.getFinalToken().toAerospikeDeleteOperation(
-                                bName,
-                                pathDetails.getCtxArray())
-                        ).toArray(Operation[]::new);
-                client.operate(writePolicy, key, operations);
-            } catch (AerospikeException e) {
-                throw DocumentApiException.toDocumentException(e);
-            }
+    @Override
+    public void deleteServerSide(WritePolicy writePolicy, Key key, Collection<String> binNames,
+                                 PreparedDocumentPath preparedPath, int attempt) {
+        Operation[] operations;
+        if (binNames.size() == 1) {
+            operations = preparedPath.getServerSideDeleteOperations(binNames.iterator().next(), attempt);
+        } else {
+            operations = binNames.stream()
+                    .flatMap(binName -> Arrays.stream(preparedPath.getServerSideDeleteOperations(binName, attempt)))
+                    .toArray(Operation[]::new);
+        }
+        try {
+            client.operate(writePolicy, key, operations);
+        } catch (AerospikeException e) {
+            throw DocumentApiException.toDocumentException(e);
         }
     }
 
@@ -210,4 +258,11 @@ class AerospikeDocumentRepository implements IAerospikeDocumentRepository {
             throw DocumentApiException.toDocumentException(e);
         }
     }
+
+    private static WritePolicy toWritePolicy(Policy policy) {
+        if (policy == null || policy instanceof WritePolicy) {
+            return (WritePolicy) policy;
+        }
+        return new WritePolicy(policy);
+    }
 }
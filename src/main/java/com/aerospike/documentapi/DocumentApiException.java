@@ -67,6 +67,18 @@ public class DocumentApiException extends RuntimeException {
         }
     }
 
+    /**
+     * Exception to be thrown in case of incrementing at a path other than a 1-step path to a map value or
+     * a list element.
+     */
+    public static class JsonIncrementException extends DocumentApiException {
+
+        public JsonIncrementException(String jsonString) {
+            super(String.format("Cannot increment '%s', the path must lead to a map value or a list element " +
+                    "without requiring a JSONPath query", jsonString));
+        }
+    }
+
     /**
      * Exception to be thrown in case of invalid json path.
      */
@@ -0,0 +1,28 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * The objects matched by a JSON path in the record of one key, emitted by
+ * {@link IAerospikeDocumentAsyncClient#getAll(org.reactivestreams.Publisher, java.util.Collection, String)}.
+ */
+@Value
+public class DocumentResult {
+
+    Key key;
+    // the objects matched by the JSON path by bin name, null if the read has failed
+    Map<String, Object> results;
+    // the result code of the read, e.g. ResultCode.KEY_NOT_FOUND_ERROR if the record does not exist
+    int resultCode;
+
+    /**
+     * @return true if the read has succeeded.
+     */
+    public boolean isOk() {
+        return resultCode == ResultCode.OK;
+    }
+}
@@ -0,0 +1,273 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.Key;
+import com.aerospike.documentapi.batch.BatchOperation;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.reactivestreams.Publisher;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of {@link IAerospikeDocumentClient}.
+ * <p>
+ * The operations are performed on the Aerospike event loops without blocking the calling thread, the returned futures
+ * are completed on an event loop thread or exceptionally with a {@link DocumentApiException}.
+ */
+public interface IAerospikeDocumentAsyncClient {
+
+    /**
+     * Parse and prepare a JSON path to be reused across operations.
+     *
+     * @param jsonPath JSON path to prepare.
+     * @return the prepared path.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    PreparedDocumentPath prepare(String jsonPath);
+
+    /**
+     * Retrieve an object matched by JSON path.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path matching the required elements.
+     * @return a future of the object matched by jsonPath.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Object> get(Key key, String binName, String jsonPath);
+
+    /**
+     * Retrieve a map of objects matched by JSON path.
+     *
+     * @param key      Aerospike Key.
+     * @param binNames names of bins storing json (all bins with the same document structure).
+     * @param jsonPath JSON path matching the required elements.
+     * @return a future of the map of objects matched by jsonPath with bin names as keys.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Map<String, Object>> get(Key key, Collection<String> binNames, String jsonPath);
+
+    /**
+     * Retrieve an object matched by a prepared JSON path.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path matching the required elements.
+     * @return a future of the object matched by the path.
+     */
+    CompletableFuture<Object> get(Key key, String binName, PreparedDocumentPath preparedPath);
+
+    /**
+     * Retrieve a map of objects matched by a prepared JSON path.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path matching the required elements.
+     * @return a future of the map of objects matched by the path with bin names as keys.
+     */
+    CompletableFuture<Map<String, Object>> get(Key key, Collection<String> binNames,
+                                               PreparedDocumentPath preparedPath);
+
+    /**
+     * Put a JSON document.
+     *
+     * @param key        Aerospike Key.
+     * @param binName    name of a bin to store json.
+     * @param jsonObject JSON object (document) to put.
+     * @return a future completed when the document is written.
+     */
+    CompletableFuture<Void> put(Key key, String binName, JsonNode jsonObject);
+
+    /**
+     * Put an object at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path to put the given JSON object in.
+     * @param object   the object to be put at the given JSON path.
+     * @return a future completed when the object is written.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Void> put(Key key, String binName, String jsonPath, Object object);
+
+    /**
+     * Put an object at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binNames names of bins storing json (all bins with the same document structure).
+     * @param jsonPath JSON path to put the given JSON object in.
+     * @param object   the object to be put at the given JSON path.
+     * @return a future completed when the object is written.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Void> put(Key key, Collection<String> binNames, String jsonPath, Object object);
+
+    /**
+     * Put an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path to put the given JSON object in.
+     * @param object       the object to be put at the given path.
+     * @return a future completed when the object is written.
+     */
+    CompletableFuture<Void> put(Key key, String binName, PreparedDocumentPath preparedPath, Object object);
+
+    /**
+     * Put an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path to put the given JSON object in.
+     * @param object       the object to be put at the given path.
+     * @return a future completed when the object is written.
+     */
+    CompletableFuture<Void> put(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                Object object);
+
+    /**
+     * Append an object to a collection at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path that includes a collection to append the given JSON object to.
+     * @param object   the object to be appended at the given JSON path.
+     * @return a future completed when the object is written.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Void> append(Key key, String binName, String jsonPath, Object object);
+
+    /**
+     * Append an object to a collection at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binNames names of bins storing json (all bins with the same document structure).
+     * @param jsonPath JSON path that includes a collection to append the given JSON object to.
+     * @param object   the object to be appended at the given JSON path.
+     * @return a future completed when the object is written.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Void> append(Key key, Collection<String> binNames, String jsonPath, Object object);
+
+    /**
+     * Append an object to a collection at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path that includes a collection to append the given JSON object to.
+     * @param object       the object to be appended at the given path.
+     * @return a future completed when the object is written.
+     */
+    CompletableFuture<Void> append(Key key, String binName, PreparedDocumentPath preparedPath, Object object);
+
+    /**
+     * Append an object to a collection at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path that includes a collection to append the given JSON object to.
+     * @param object       the object to be appended at the given path.
+     * @return a future completed when the object is written.
+     */
+    CompletableFuture<Void> append(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                   Object object);
+
+    /**
+     * Delete an object at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path for the object deletion.
+     * @return a future completed when the object is deleted.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Void> delete(Key key, String binName, String jsonPath);
+
+    /**
+     * Delete an object at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binNames names of bins storing json (all bins with the same document structure).
+     * @param jsonPath JSON path for the object deletion.
+     * @return a future completed when the object is deleted.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    CompletableFuture<Void> delete(Key key, Collection<String> binNames, String jsonPath);
+
+    /**
+     * Delete an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path for the object deletion.
+     * @return a future completed when the object is deleted.
+     */
+    CompletableFuture<Void> delete(Key key, String binName, PreparedDocumentPath preparedPath);
+
+    /**
+     * Delete an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path for the object deletion.
+     * @return a future completed when the object is deleted.
+     */
+    CompletableFuture<Void> delete(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath);
+
+    /**
+     * Perform batch operations, see {@link IAerospikeDocumentClient#batchPerform(List, boolean)}.
+     * <p>
+     * If {@link com.aerospike.documentapi.policy.DocumentPolicy#isPipelineBatches()} is set, the second step of each
+     * operation is computed and written as soon as its first step record is read, with at most
+     * {@link com.aerospike.documentapi.policy.DocumentPolicy#getMaxPipelinedWriteBatches()} write batches in flight.
+     * Otherwise the second step starts when all the first step records have been read.
+     *
+     * @param batchOperations a list of batch operations to apply.
+     * @return a future of the list of corresponding {@link BatchRecord} results.
+     * @throws IllegalArgumentException if the batch has 1-step and 2-step operations with the same key.
+     */
+    CompletableFuture<List<BatchRecord>> batchPerform(List<BatchOperation> batchOperations);
+
+    /**
+     * Retrieve the objects matched by JSON path in the records of many keys, see
+     * {@link #getAll(Publisher, Collection, PreparedDocumentPath)}.
+     *
+     * @param keys     the publisher of the keys to read.
+     * @param binNames names of bins storing json (all bins with the same document structure).
+     * @param jsonPath JSON path matching the required elements.
+     * @return a publisher of the result of each key.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    Publisher<DocumentResult> getAll(Publisher<Key> keys, Collection<String> binNames, String jsonPath);
+
+    /**
+     * Retrieve the objects matched by a prepared JSON path in the records of many keys, reading them by batches.
+     * <p>
+     * The keys are requested from the key publisher as the subscriber requests results and read by batches of
+     * {@link com.aerospike.documentapi.policy.DocumentPolicy#getReadBatchSize()} keys, at most
+     * {@link com.aerospike.documentapi.policy.DocumentPolicy#getMaxReadBatchesInFlight()} batches at a time, so
+     * the memory used does not depend on the number of keys. The results are emitted in the order of completion of
+     * the batches, on the thread requesting them or the key publisher thread, or on
+     * {@link com.aerospike.documentapi.policy.DocumentPolicy#getStreamExecutor()} when a batch completes, never on
+     * an event loop thread. The publisher fails with the first error of a batch or of the key publisher, the reads
+     * of missing records are emitted with their result code.
+     *
+     * @param keys         the publisher of the keys to read.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path matching the required elements.
+     * @return a publisher of the result of each key, subscribing to the key publisher for each subscriber.
+     */
+    Publisher<DocumentResult> getAll(Publisher<Key> keys, Collection<String> binNames,
+                                     PreparedDocumentPath preparedPath);
+
+    /**
+     * Retrieve the counters of concurrent update conflicts and retries of 2-step write operations.
+     *
+     * @return the statistics of this client.
+     */
+    RetryStatistics getRetryStatistics();
+}
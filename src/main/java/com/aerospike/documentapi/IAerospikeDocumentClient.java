@@ -3,6 +3,7 @@ package com.aerospike.documentapi;
 import com.aerospike.client.BatchRecord;
 import com.aerospike.client.Key;
 import com.aerospike.documentapi.batch.BatchOperation;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.Collection;
@@ -11,6 +12,17 @@ import java.util.Map;
 
 public interface IAerospikeDocumentClient {
 
+    /**
+     * Parse and prepare a JSON path to be reused across operations.
+     * <p>
+     * Operations accepting a {@link PreparedDocumentPath} skip parsing and building Aerospike contexts.
+     *
+     * @param jsonPath JSON path to prepare.
+     * @return the prepared path.
+     * @throws DocumentApiException if fails to parse the JSON path.
+     */
+    PreparedDocumentPath prepare(String jsonPath);
+
     /**
      * Retrieve an object matched by JSON path.
      *
@@ -33,6 +45,53 @@ public interface IAerospikeDocumentClient {
      */
     Map<String, Object> get(Key key, Collection<String> binNames, String jsonPath);
 
+    /**
+     * Retrieve an object matched by a prepared JSON path.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path matching the required elements.
+     * @return object matched by the path.
+     * @throws DocumentApiException if there was an error.
+     */
+    Object get(Key key, String binName, PreparedDocumentPath preparedPath);
+
+    /**
+     * Retrieve a map of objects matched by a prepared JSON path.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path matching the required elements.
+     * @return A map of objects matched by the path with bin names as keys.
+     * @throws DocumentApiException if there was an error.
+     */
+    Map<String, Object> get(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath);
+
+    /**
+     * Retrieve the objects matched by several JSON paths of a document in one read.
+     * <p>
+     * The paths not requiring a JSONPath query are read by one operate command together with the common part
+     * of the paths requiring a query, which are then applied to it.
+     *
+     * @param key       Aerospike Key.
+     * @param binName   name of a bin storing json.
+     * @param jsonPaths JSON paths matching the required elements.
+     * @return A map of objects matched by the paths with the paths as keys, null values for missing data.
+     * @throws DocumentApiException if there was an error with any of the paths.
+     */
+    Map<String, Object> get(Key key, String binName, Collection<String> jsonPaths);
+
+    /**
+     * Retrieve the objects matched by several JSON paths of documents in one read.
+     *
+     * @param key       Aerospike Key.
+     * @param binNames  names of bins storing json (all bins with the same document structure).
+     * @param jsonPaths JSON paths matching the required elements.
+     * @return A map with the paths as keys of the maps of objects matched by each path with bin names as keys.
+     * @throws DocumentApiException if there was an error with any of the paths.
+     */
+    Map<String, Map<String, Object>> get(Key key, Collection<String> binNames, Collection<String> jsonPaths);
+
     /**
      * Put a JSON document.
      *
@@ -64,6 +123,57 @@ public interface IAerospikeDocumentClient {
      */
     void put(Key key, Collection<String> binNames, String jsonPath, Object object);
 
+    /**
+     * Put an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path to put the given JSON object in.
+     * @param object       the object to be put at the given path.
+     * @throws DocumentApiException if there was an error.
+     */
+    void put(Key key, String binName, PreparedDocumentPath preparedPath, Object object);
+
+    /**
+     * Put an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path to put the given JSON object in.
+     * @param object       the object to be put at the given path.
+     * @throws DocumentApiException if there was an error.
+     */
+    void put(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath, Object object);
+
+    /**
+     * Atomically put objects at several paths in JSON document.
+     * <p>
+     * The paths not requiring a JSONPath query are written by one operate command. If there are paths requiring
+     * a query, their common part is read once, the queries are applied to it in order and the changes are written
+     * together with the other paths, failing if the record has been updated since the read. As the paths not
+     * requiring a query are written after the others, they cannot precede a path requiring a query they overlap.
+     *
+     * @param key             Aerospike Key.
+     * @param binName         name of a bin storing json.
+     * @param jsonPathObjects the objects to be put by JSON path, paths not requiring a query written after the others.
+     * @throws DocumentApiException     if there was an error.
+     * @throws IllegalArgumentException if a path not requiring a JSONPath query precedes an overlapping path
+     *                                  requiring a query.
+     */
+    void putAll(Key key, String binName, Map<String, Object> jsonPathObjects);
+
+    /**
+     * Atomically put objects at several paths in JSON document.
+     *
+     * @param key             Aerospike Key.
+     * @param binNames        names of bins storing json (all bins with the same document structure).
+     * @param jsonPathObjects the objects to be put by JSON path, paths not requiring a query written after the others.
+     * @throws DocumentApiException     if there was an error.
+     * @throws IllegalArgumentException if a path not requiring a JSONPath query precedes an overlapping path
+     *                                  requiring a query.
+     */
+    void putAll(Key key, Collection<String> binNames, Map<String, Object> jsonPathObjects);
+
     /**
      * Append an object to a collection at a particular path in JSON document.
      *
@@ -86,6 +196,53 @@ public interface IAerospikeDocumentClient {
      */
     void append(Key key, Collection<String> binNames, String jsonPath, Object object);
 
+    /**
+     * Append an object to a collection at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path that includes a collection to append the given JSON object to.
+     * @param object       the object to be appended at the given path.
+     * @throws DocumentApiException if there was an error.
+     */
+    void append(Key key, String binName, PreparedDocumentPath preparedPath, Object object);
+
+    /**
+     * Append an object to a collection at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path that includes a collection to append the given JSON object to.
+     * @param object       the object to be appended at the given path.
+     * @throws DocumentApiException if there was an error.
+     */
+    void append(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath, Object object);
+
+    /**
+     * Atomically append objects to collections at several paths in JSON document, see
+     * {@link #putAll(Key, String, Map)}.
+     *
+     * @param key             Aerospike Key.
+     * @param binName         name of a bin storing json.
+     * @param jsonPathObjects the objects to be appended by JSON path of a collection.
+     * @throws DocumentApiException     if there was an error.
+     * @throws IllegalArgumentException if a path not requiring a JSONPath query precedes an overlapping path
+     *                                  requiring a query.
+     */
+    void appendAll(Key key, String binName, Map<String, Object> jsonPathObjects);
+
+    /**
+     * Atomically append objects to collections at several paths in JSON document.
+     *
+     * @param key             Aerospike Key.
+     * @param binNames        names of bins storing json (all bins with the same document structure).
+     * @param jsonPathObjects the objects to be appended by JSON path of a collection.
+     * @throws DocumentApiException     if there was an error.
+     * @throws IllegalArgumentException if a path not requiring a JSONPath query precedes an overlapping path
+     *                                  requiring a query.
+     */
+    void appendAll(Key key, Collection<String> binNames, Map<String, Object> jsonPathObjects);
+
     /**
      * Delete an object at a particular path in JSON document.
      *
@@ -106,20 +263,137 @@ public interface IAerospikeDocumentClient {
      */
     void delete(Key key, Collection<String> binNames, String jsonPath);
 
+    /**
+     * Delete an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path for the object deletion.
+     * @throws DocumentApiException if there was an error.
+     */
+    void delete(Key key, String binName, PreparedDocumentPath preparedPath);
+
+    /**
+     * Delete an object at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path for the object deletion.
+     * @throws DocumentApiException if there was an error.
+     */
+    void delete(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath);
+
+    /**
+     * Atomically delete objects at several paths in JSON document, see {@link #putAll(Key, String, Map)}.
+     *
+     * @param key       Aerospike Key.
+     * @param binName   name of a bin storing json.
+     * @param jsonPaths JSON paths for the objects deletion.
+     * @throws DocumentApiException     if there was an error.
+     * @throws IllegalArgumentException if a path not requiring a JSONPath query precedes an overlapping path
+     *                                  requiring a query.
+     */
+    void deleteAll(Key key, String binName, Collection<String> jsonPaths);
+
+    /**
+     * Atomically delete objects at several paths in JSON document.
+     *
+     * @param key       Aerospike Key.
+     * @param binNames  names of bins storing json (all bins with the same document structure).
+     * @param jsonPaths JSON paths for the objects deletion.
+     * @throws DocumentApiException     if there was an error.
+     * @throws IllegalArgumentException if a path not requiring a JSONPath query precedes an overlapping path
+     *                                  requiring a query.
+     */
+    void deleteAll(Key key, Collection<String> binNames, Collection<String> jsonPaths);
+
+    /**
+     * Atomically increment a number at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path to a map value or a list element not requiring a JSONPath query.
+     * @param delta    the number to add, an integer or a floating point number of the same type as the stored one.
+     * @return the incremented number.
+     * @throws DocumentApiException if there was an error.
+     */
+    Object increment(Key key, String binName, String jsonPath, Number delta);
+
+    /**
+     * Atomically increment a number at a particular path in JSON document.
+     *
+     * @param key      Aerospike Key.
+     * @param binNames names of bins storing json (all bins with the same document structure).
+     * @param jsonPath JSON path to a map value or a list element not requiring a JSONPath query.
+     * @param delta    the number to add, an integer or a floating point number of the same type as the stored one.
+     * @return A map of the incremented numbers with bin names as keys.
+     * @throws DocumentApiException if there was an error.
+     */
+    Map<String, Object> increment(Key key, Collection<String> binNames, String jsonPath, Number delta);
+
+    /**
+     * Atomically increment a number at a particular prepared path in JSON document.
+     *
+     * @param key          Aerospike Key.
+     * @param binName      name of a bin storing json.
+     * @param preparedPath prepared JSON path to a map value or a list element not requiring a JSONPath query.
+     * @param delta        the number to add, an integer or a floating point number of the same type as the stored
+     *                     one.
+     * @return the incremented number.
+     * @throws DocumentApiException if there was an error.
+     */
+    Object increment(Key key, String binName, PreparedDocumentPath preparedPath, Number delta);
+
+    /**
+     * Atomically increment a number at a particular prepared path in JSON document.
+     * <p>
+     * The numbers of all bins are incremented and returned by one operation, a missing map key is created with
+     * the delta as its value.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json (all bins with the same document structure).
+     * @param preparedPath prepared JSON path to a map value or a list element not requiring a JSONPath query.
+     * @param delta        the number to add, an integer or a floating point number of the same type as the stored
+     *                     one.
+     * @return A map of the incremented numbers with bin names as keys.
+     * @throws DocumentApiException if there was an error.
+     */
+    Map<String, Object> increment(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                  Number delta);
+
     /**
      * Perform batch operations.
      * <p>
      * Operations order is preserved only for those 1-step operations (with JSONPath that contains only array and/or map
      * elements) that have unique Aerospike keys within a batch.
      * <p>
-     * Every 2-step operation (with JSONPath containing wildcards, recursive descent, filters, functions, scripts)
-     * should have unique Aerospike key within a batch.
+     * 2-step operations (with JSONPath containing wildcards, recursive descent, filters, functions, scripts) having
+     * the same Aerospike key are combined into one read and one write, applying them in their order. They cannot have
+     * the same key as 1-step operations within a batch. 2-step write operations whose records have been updated
+     * concurrently are retried according to the {@link com.aerospike.documentapi.policy.RetryPolicy}.
      *
      * @param batchOperations a list of batch operations to apply.
-     * @param parallel        whether batch processing stream operations should run in parallel.
+     * @param parallel        whether the JSONPath queries of the second step should be applied in parallel on the
+     *                        batch executor of the {@link com.aerospike.documentapi.policy.DocumentPolicy}, batches
+     *                        smaller than its minimum parallel batch size are processed sequentially.
      * @return a list of corresponding {@link BatchRecord} results.
      * @throws DocumentApiException     if there was an error.
-     * @throws IllegalArgumentException if the batch has multiple two-step operations with the same key.
+     * @throws IllegalArgumentException if the batch has 1-step and 2-step operations with the same key.
      */
     List<BatchRecord> batchPerform(List<BatchOperation> batchOperations, boolean parallel);
+
+    /**
+     * Retrieve the counters of concurrent update conflicts and retries of 2-step write operations.
+     *
+     * @return the statistics of this client.
+     */
+    RetryStatistics getRetryStatistics();
+
+    /**
+     * Retrieve the counters of the local key locks serializing 2-step write operations of the same key, enabled by
+     * {@link com.aerospike.documentapi.policy.DocumentPolicy#getLockStripes()}.
+     *
+     * @return the statistics of this client.
+     */
+    LockStatistics getLockStatistics();
 }
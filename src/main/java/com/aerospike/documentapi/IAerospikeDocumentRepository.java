@@ -2,10 +2,12 @@ package com.aerospike.documentapi;
 
 import com.aerospike.client.BatchRecord;
 import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
 import com.aerospike.client.policy.BatchPolicy;
 import com.aerospike.client.policy.Policy;
 import com.aerospike.client.policy.WritePolicy;
-import com.aerospike.documentapi.jsonpath.JsonPathObject;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.Collection;
@@ -14,24 +16,43 @@ import java.util.Map;
 
 public interface IAerospikeDocumentRepository {
 
-    Map<String, Object> get(Policy readPolicy, Key key, Collection<String> binNames, JsonPathObject jsonPathObject);
+    Map<String, Object> get(Policy readPolicy, Key key, Collection<String> binNames, PreparedDocumentPath preparedPath);
 
-    Map<String, Object> get(Policy readPolicy, Key key, Collection<String> binNames, JsonPathObject jsonPathObject,
+    Map<String, Object> get(Policy readPolicy, Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
                             boolean withLut);
 
+    Record getRecord(Policy readPolicy, Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                     boolean withLut);
+
+    Record getRecord(Policy readPolicy, Key key, Operation[] operations);
+
+    Record getListSizes(Policy readPolicy, Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                        boolean withLut);
+
+    Map<String, Object> getServerSide(Policy readPolicy, Key key, Collection<String> binNames,
+                                      PreparedDocumentPath preparedPath, int attempt);
+
     void put(WritePolicy writePolicy, Key key, String binName, JsonNode jsonNode);
 
     void put(WritePolicy writePolicy, Key key, String binName, Map<?, ?> jsonMap);
 
     void put(WritePolicy writePolicy, Key key, Collection<String> binNames, Object jsonObject,
-             JsonPathObject jsonPathObject);
+             PreparedDocumentPath preparedPath);
+
+    void put(WritePolicy writePolicy, Key key, Map<String, Object> queryResults, PreparedDocumentPath preparedPath);
+
+    void update(WritePolicy writePolicy, Key key, Map<String, Object> originals, Map<String, Object> queryResults,
+                PreparedDocumentPath preparedPath);
+
+    Record operate(WritePolicy writePolicy, Key key, Operation[] operations);
 
-    void put(WritePolicy writePolicy, Key key, Map<String, Object> queryResults, JsonPathObject jsonPathObject);
+    void append(WritePolicy writePolicy, Key key, Collection<String> binNames, Object jsonObject,
+                PreparedDocumentPath preparedPath);
 
-    void append(WritePolicy writePolicy, Key key, Collection<String> binNames, String jsonPath, Object jsonObject,
-                JsonPathObject jsonPathObject);
+    void delete(WritePolicy writePolicy, Key key, Collection<String> binNames, PreparedDocumentPath preparedPath);
 
-    void delete(WritePolicy writePolicy, Key key, Collection<String> binNames, JsonPathObject jsonPathObject);
+    void deleteServerSide(WritePolicy writePolicy, Key key, Collection<String> binNames,
+                          PreparedDocumentPath preparedPath, int attempt);
 
     boolean batchPerform(BatchPolicy batchPolicy, List<BatchRecord> batchRecords);
 }
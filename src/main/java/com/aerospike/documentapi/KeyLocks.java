@@ -0,0 +1,91 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.Key;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks serializing 2-step write operations of the same key within a client, so that concurrent updates
+ * of a hot document by threads of one process wait for each other instead of failing the last update time
+ * or generation check.
+ * <p>
+ * Keys are mapped to a fixed number of locks by their digest, different keys may share a lock.
+ */
+final class KeyLocks {
+
+    private final ReentrantLock[] locks;
+    private final LockStatistics statistics;
+
+    KeyLocks(int stripes, LockStatistics statistics) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of lock stripes must be positive");
+        }
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.statistics = statistics;
+    }
+
+    /**
+     * Acquire the lock of a key.
+     *
+     * @param key the key.
+     * @return the acquired lock, to be unlocked by the caller.
+     */
+    ReentrantLock lock(Key key) {
+        ReentrantLock lock = locks[getStripe(key)];
+        acquire(lock);
+        return lock;
+    }
+
+    /**
+     * Acquire the locks of several keys in the order of their stripes, so that threads locking overlapping keys
+     * cannot deadlock.
+     *
+     * @param keys the keys.
+     * @return the acquired locks, to be unlocked by the caller.
+     */
+    ReentrantLock[] lock(Collection<Key> keys) {
+        boolean[] stripes = new boolean[locks.length];
+        int count = 0;
+        for (Key key : keys) {
+            int stripe = getStripe(key);
+            if (!stripes[stripe]) {
+                stripes[stripe] = true;
+                count++;
+            }
+        }
+        ReentrantLock[] acquired = new ReentrantLock[count];
+        int index = 0;
+        for (int stripe = 0; stripe < stripes.length; stripe++) {
+            if (stripes[stripe]) {
+                acquire(locks[stripe]);
+                acquired[index++] = locks[stripe];
+            }
+        }
+        return acquired;
+    }
+
+    static void unlock(ReentrantLock[] acquired) {
+        for (int i = acquired.length - 1; i >= 0; i--) {
+            acquired[i].unlock();
+        }
+    }
+
+    private void acquire(ReentrantLock lock) {
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            statistics.addWait(System.nanoTime() - start);
+        }
+        statistics.addAcquisition();
+    }
+
+    private int getStripe(Key key) {
+        byte[] digest = key.digest;
+        int hash = (digest[0] & 0xff) | (digest[1] & 0xff) << 8 | (digest[2] & 0xff) << 16 | digest[3] << 24;
+        return Math.floorMod(hash, locks.length);
+    }
+}
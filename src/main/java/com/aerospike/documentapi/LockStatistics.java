@@ -0,0 +1,54 @@
+package com.aerospike.documentapi;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the local key locks serializing 2-step write operations of the same key within a client.
+ * <p>
+ * Contended acquisitions are conflicts resolved by waiting locally instead of by retrying the operation.
+ */
+public class LockStatistics {
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+
+    /**
+     * @return the number of times a lock was acquired.
+     */
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * @return the number of times a lock was held by another thread and had to be waited for.
+     */
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    /**
+     * @return the total time spent waiting for locks in nanoseconds.
+     */
+    public long getWaitTimeNanos() {
+        return waitTime.sum();
+    }
+
+    /**
+     * Reset all counters to zero.
+     */
+    public void reset() {
+        acquisitions.reset();
+        waits.reset();
+        waitTime.reset();
+    }
+
+    void addAcquisition() {
+        acquisitions.increment();
+    }
+
+    void addWait(long nanos) {
+        waits.increment();
+        waitTime.add(nanos);
+    }
+}
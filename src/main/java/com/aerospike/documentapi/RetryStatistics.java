@@ -0,0 +1,58 @@
+package com.aerospike.documentapi;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the concurrent update conflicts of 2-step write operations and of their retries.
+ * <p>
+ * A growing number of conflicts relative to the number of operations indicates contention on frequently updated
+ * documents.
+ */
+public class RetryStatistics {
+
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @return the number of attempts that failed because the record was updated concurrently.
+     */
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    /**
+     * @return the number of attempts started after a conflict.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return the number of operations that failed with a conflict after the last allowed attempt.
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Reset all counters to zero.
+     */
+    public void reset() {
+        conflicts.reset();
+        retries.reset();
+        failures.reset();
+    }
+
+    void addConflicts(long count) {
+        conflicts.add(count);
+    }
+
+    void addRetries(long count) {
+        retries.add(count);
+    }
+
+    void addFailures(long count) {
+        failures.add(count);
+    }
+}
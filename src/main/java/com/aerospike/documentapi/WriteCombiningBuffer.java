@@ -0,0 +1,293 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.documentapi.jsonpath.JsonPathParser;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.WriteCombiningPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffer combining 1-step write operations (PUT, APPEND and DELETE with JSONPath not requiring a query)
+ * into fewer requests to the server.
+ * <p>
+ * The operations of the same key are written by one operate command in the order they were buffered, the operations
+ * of several keys by one batch. Each call returns a future completed when the combined write is acknowledged.
+ * If a combined write fails without being in doubt, the operations of its key are written separately, so that only
+ * the futures of the failing operations complete exceptionally.
+ * <p>
+ * Buffered operations are not visible to reads until they are written. The buffer has to be closed to write
+ * the remaining operations and to stop its timer thread.
+ */
+public class WriteCombiningBuffer implements AutoCloseable {
+
+    private final IAerospikeClient client;
+    private final WritePolicy writePolicy;
+    private final BatchPolicy batchPolicy;
+    private final long window;
+    private final int maxOperations;
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+    // operations buffered since the last flush, by key in the order of their first operation
+    private Map<Key, List<BufferedWrite>> buffered = new LinkedHashMap<>();
+    private int bufferedOperations;
+    private boolean closed;
+
+    public WriteCombiningBuffer(IAerospikeClient client) {
+        this(client, WriteCombiningPolicy.builder().build());
+    }
+
+    public WriteCombiningBuffer(IAerospikeClient client, WriteCombiningPolicy writeCombiningPolicy) {
+        this.client = client;
+        this.writePolicy = writeCombiningPolicy.getWritePolicy() == null
+                ? client.getWritePolicyDefault()
+                : writeCombiningPolicy.getWritePolicy();
+        this.batchPolicy = writeCombiningPolicy.getBatchPolicy() == null
+                ? client.getBatchPolicyDefault()
+                : writeCombiningPolicy.getBatchPolicy();
+        this.window = writeCombiningPolicy.getWindow();
+        this.maxOperations = writeCombiningPolicy.getMaxOperations();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aerospike-document-write-combining");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Buffer putting an object to a JSON path.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path not requiring a query.
+     * @param object   the object to be put.
+     * @return a future completed when the object is written.
+     * @throws DocumentApiException     if the path cannot be parsed.
+     * @throws IllegalArgumentException if the path requires a JSONPath query or the object cannot be written.
+     */
+    public CompletableFuture<Void> put(Key key, String binName, String jsonPath, Object object) {
+        return put(key, Collections.singletonList(binName), JsonPathParser.prepare(jsonPath), object);
+    }
+
+    /**
+     * Buffer putting an object to a prepared JSON path in the given bins.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json.
+     * @param preparedPath prepared JSON path not requiring a query.
+     * @param object       the object to be put.
+     * @return a future completed when the object is written.
+     * @throws IllegalArgumentException if the path requires a JSONPath query or the object cannot be written.
+     */
+    public CompletableFuture<Void> put(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                       Object object) {
+        validateOneStep(preparedPath);
+        return buffer(key, binNames.stream()
+                .map(binName -> preparedPath.getPutOperation(binName, object))
+                .toArray(Operation[]::new));
+    }
+
+    /**
+     * Buffer appending an object to a list at a JSON path.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path not requiring a query.
+     * @param object   the object to be appended.
+     * @return a future completed when the object is written.
+     * @throws DocumentApiException     if the path cannot be parsed or applies to the whole bin.
+     * @throws IllegalArgumentException if the path requires a JSONPath query.
+     */
+    public CompletableFuture<Void> append(Key key, String binName, String jsonPath, Object object) {
+        return append(key, Collections.singletonList(binName), JsonPathParser.prepare(jsonPath), object);
+    }
+
+    /**
+     * Buffer appending an object to a list at a prepared JSON path in the given bins.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json.
+     * @param preparedPath prepared JSON path not requiring a query.
+     * @param object       the object to be appended.
+     * @return a future completed when the object is written.
+     * @throws DocumentApiException     if the path applies to the whole bin.
+     * @throws IllegalArgumentException if the path requires a JSONPath query.
+     */
+    public CompletableFuture<Void> append(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                          Object object) {
+        validateOneStep(preparedPath);
+        return buffer(key, binNames.stream()
+                .map(binName -> preparedPath.getAppendOperation(binName, object))
+                .toArray(Operation[]::new));
+    }
+
+    /**
+     * Buffer deleting an object at a JSON path.
+     *
+     * @param key      Aerospike Key.
+     * @param binName  name of a bin storing json.
+     * @param jsonPath JSON path not requiring a query.
+     * @return a future completed when the object is deleted.
+     * @throws DocumentApiException     if the path cannot be parsed.
+     * @throws IllegalArgumentException if the path requires a JSONPath query.
+     */
+    public CompletableFuture<Void> delete(Key key, String binName, String jsonPath) {
+        return delete(key, Collections.singletonList(binName), JsonPathParser.prepare(jsonPath));
+    }
+
+    /**
+     * Buffer deleting an object at a prepared JSON path in the given bins.
+     *
+     * @param key          Aerospike Key.
+     * @param binNames     names of bins storing json.
+     * @param preparedPath prepared JSON path not requiring a query.
+     * @return a future completed when the object is deleted.
+     * @throws IllegalArgumentException if the path requires a JSONPath query.
+     */
+    public CompletableFuture<Void> delete(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
+        validateOneStep(preparedPath);
+        return buffer(key, binNames.stream()
+                .map(binName -> preparedPath.getDeleteOperations(binName)[0])
+                .toArray(Operation[]::new));
+    }
+
+    /**
+     * Write the buffered operations and wait until they are acknowledged.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Key, List<BufferedWrite>> writes;
+            synchronized (this) {
+                writes = buffered;
+                buffered = new LinkedHashMap<>();
+                bufferedOperations = 0;
+            }
+            if (writes.size() == 1) {
+                Map.Entry<Key, List<BufferedWrite>> entry = writes.entrySet().iterator().next();
+                write(entry.getKey(), entry.getValue());
+            } else if (!writes.isEmpty()) {
+                writeBatch(writes);
+            }
+        }
+    }
+
+    /**
+     * Write the buffered operations and stop buffering new ones.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    private CompletableFuture<Void> buffer(Key key, Operation[] operations) {
+        BufferedWrite write = new BufferedWrite(operations);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Write combining buffer is closed");
+            }
+            if (buffered.isEmpty()) {
+                scheduler.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+            }
+            buffered.computeIfAbsent(key, k -> new ArrayList<>()).add(write);
+            bufferedOperations += operations.length;
+            // the scheduler is shut down only after the buffer is closed
+            if (bufferedOperations >= maxOperations) {
+                scheduler.execute(this::flush);
+            }
+        }
+        return write.future;
+    }
+
+    private void write(Key key, List<BufferedWrite> writes) {
+        try {
+            client.operate(writePolicy, key, combine(writes));
+            writes.forEach(write -> write.future.complete(null));
+        } catch (AerospikeException e) {
+            fail(key, writes, e.getInDoubt(), e);
+        } catch (RuntimeException e) {
+            writes.forEach(write -> write.future.completeExceptionally(DocumentApiException.toDocumentException(e)));
+        }
+    }
+
+    private void writeBatch(Map<Key, List<BufferedWrite>> writes) {
+        List<BatchRecord> batchRecords = new ArrayList<>(writes.size());
+        writes.forEach((key, keyWrites) -> batchRecords.add(new BatchWrite(key, combine(keyWrites))));
+        try {
+            client.operate(batchPolicy, batchRecords);
+        } catch (RuntimeException e) {
+            // the batch may have been written partially
+            DocumentApiException exception = DocumentApiException.toDocumentException(e);
+            writes.values().forEach(keyWrites ->
+                    keyWrites.forEach(write -> write.future.completeExceptionally(exception)));
+            return;
+        }
+        int i = 0;
+        for (Map.Entry<Key, List<BufferedWrite>> entry : writes.entrySet()) {
+            BatchRecord batchRecord = batchRecords.get(i++);
+            if (batchRecord.resultCode == ResultCode.OK) {
+                entry.getValue().forEach(write -> write.future.complete(null));
+            } else {
+                fail(entry.getKey(), entry.getValue(), batchRecord.inDoubt,
+                        new AerospikeException(batchRecord.resultCode, batchRecord.inDoubt));
+            }
+        }
+    }
+
+    // a combined write is atomic, so the writes of a key that failed without being in doubt are written separately
+    private void fail(Key key, List<BufferedWrite> writes, boolean inDoubt, AerospikeException e) {
+        if (writes.size() > 1 && !inDoubt) {
+            writes.forEach(write -> write(key, Collections.singletonList(write)));
+            return;
+        }
+        DocumentApiException exception = DocumentApiException.wrapAerospikeException(e);
+        writes.forEach(write -> write.future.completeExceptionally(exception));
+    }
+
+    private static Operation[] combine(List<BufferedWrite> writes) {
+        if (writes.size() == 1) {
+            return writes.get(0).operations;
+        }
+        return writes.stream()
+                .flatMap(write -> Arrays.stream(write.operations))
+                .toArray(Operation[]::new);
+    }
+
+    private static void validateOneStep(PreparedDocumentPath preparedPath) {
+        if (preparedPath.requiresJsonPathQuery()) {
+            throw new IllegalArgumentException(String.format("Only 1-step operations can be combined, '%s' " +
+                    "requires a JSONPath query", preparedPath.getJsonPath()));
+        }
+    }
+
+    private static final class BufferedWrite {
+
+        private final Operation[] operations;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private BufferedWrite(Operation[] operations) {
+            this.operations = operations;
+        }
+    }
+}
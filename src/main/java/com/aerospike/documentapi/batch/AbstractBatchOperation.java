@@ -5,22 +5,26 @@ import com.aerospike.client.BatchRecord;
 import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
+import com.aerospike.client.policy.BatchWritePolicy;
 import com.aerospike.documentapi.jsonpath.JsonPathObject;
 import com.aerospike.documentapi.jsonpath.JsonPathParser;
-import com.aerospike.documentapi.jsonpath.PathDetails;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.ConcurrencyControl;
+import com.aerospike.documentapi.util.Generation;
 import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.util.Utils;
 import lombok.Getter;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.stream.Collectors;
-
-import static com.aerospike.documentapi.util.Utils.getPathDetails;
+import java.util.stream.Stream;
 
 @Getter
 public abstract class AbstractBatchOperation implements BatchOperation {
@@ -30,18 +34,25 @@ public abstract class AbstractBatchOperation implements BatchOperation {
     protected final String jsonPath;
     protected final JsonPathObject jsonPathObject;
     protected final JsonPathObject originalJsonPathObject;
+    protected final PreparedDocumentPath preparedPath;
     protected final boolean requiringJsonPathQuery;
     protected BatchRecord batchRecord;
     protected String errorBinName;
+    protected ConcurrencyControl concurrencyControl = ConcurrencyControl.LAST_UPDATE_TIME;
 
     protected AbstractBatchOperation(Key key, Collection<String> binNames, String jsonPath) {
+        this(key, binNames, JsonPathParser.prepare(jsonPath));
+    }
+
+    protected AbstractBatchOperation(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
         this.key = key;
         this.binNames = binNames;
-        this.jsonPath = jsonPath;
-        this.jsonPathObject = new JsonPathParser().parse(jsonPath);
+        this.jsonPath = preparedPath.getJsonPath();
+        this.preparedPath = preparedPath;
+        this.jsonPathObject = preparedPath.getJsonPathObject();
         this.requiringJsonPathQuery = jsonPathObject.requiresJsonPathQuery();
-        // copying in order to have it for a second step
-        this.originalJsonPathObject = jsonPathObject.copy();
+        // prepared paths are unmodifiable, so the same object is used for the second step
+        this.originalJsonPathObject = jsonPathObject;
         if (jsonPathObject.requiresJsonPathQuery()) {
             setFirstStepRecord();
         }
@@ -49,10 +60,16 @@ public abstract class AbstractBatchOperation implements BatchOperation {
 
     @Override
     public void setFirstStepRecord() {
-        final PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
+        setFirstStepRecord(ConcurrencyControl.LAST_UPDATE_TIME);
+    }
+
+    @Override
+    public void setFirstStepRecord(ConcurrencyControl concurrencyControl) {
+        // the first step reads what the check of the second one requires
+        this.concurrencyControl = concurrencyControl;
         List<Operation> batchOperations = binNames.stream()
-                .map(binName -> pathDetails.getFinalToken()
-                        .toAerospikeGetOperation(binName, pathDetails.getCtxArray()))
+                .map(binName -> preparedPath.getFinalToken()
+                        .toAerospikeGetOperation(binName, preparedPath.getCtxArray()))
                 .collect(Collectors.toList());
 
         batchOperations.addAll(readOperations());
@@ -60,13 +77,19 @@ public abstract class AbstractBatchOperation implements BatchOperation {
     }
 
     protected Collection<Operation> readOperations() {
-        return Collections.singleton(Lut.LUT_READ_OP);
+        return concurrencyControl == ConcurrencyControl.LAST_UPDATE_TIME
+                ? Collections.singleton(Lut.LUT_READ_OP)
+                : Collections.emptyList();
     }
 
-    protected Optional<Long> getLutValue() {
-        return Objects.isNull(batchRecord)
-                ? Optional.empty()
-                : Optional.of(batchRecord.record.getLong(Lut.LUT_BIN));
+    // the second step fails if the record has been updated since the first one
+    protected BatchWritePolicy getBatchWritePolicy() {
+        if (Objects.isNull(batchRecord)) {
+            return null;
+        }
+        return concurrencyControl == ConcurrencyControl.GENERATION
+                ? Generation.setGenerationPolicy(new BatchWritePolicy(), batchRecord.record.generation)
+                : Lut.setLutPolicy(new BatchWritePolicy(), batchRecord.record.getLong(Lut.LUT_BIN));
     }
 
     protected Map<String, Object> firstStepQueryResults() {
@@ -77,7 +100,9 @@ public abstract class AbstractBatchOperation implements BatchOperation {
                 if (entry.getKey().equals(Lut.LUT_BIN)) continue;
                 Object res;
                 try {
-                    res = firstStepJsonPathQuery(entry);
+                    // the query modifies the given value, the original one is kept to write back only the changes
+                    res = firstStepJsonPathQuery(
+                            new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), Utils.deepCopy(entry.getValue())));
                 } catch (Exception e) {
                     errorBinName = entry.getKey();
                     return Collections.emptyMap();
@@ -92,16 +117,31 @@ public abstract class AbstractBatchOperation implements BatchOperation {
         throw new UnsupportedOperationException("Raw use of a method that should be called from extending classes");
     }
 
-    protected Operation toPutOperation(String binName, Object objToPut, PathDetails pathDetails) {
+    protected Operation toPutOperation(String binName, Object objToPut) {
         try {
-            return pathDetails.getFinalToken()
-                    .toAerospikePutOperation(binName, objToPut, pathDetails.getCtxArray());
+            return preparedPath.getFinalToken()
+                    .toAerospikePutOperation(binName, objToPut, preparedPath.getCtxArray());
         } catch (IllegalArgumentException e) {
             errorBinName = binName;
             return null;
         }
     }
 
+    protected Stream<Operation> toUpdateOperations(String binName, Object updated) {
+        Operation[] operations;
+        try {
+            operations = preparedPath.getUpdateOperations(binName, batchRecord.record.getValue(binName), updated);
+        } catch (IllegalArgumentException e) {
+            errorBinName = binName;
+            return Stream.empty();
+        }
+        // a batch write requires at least one operation
+        if (operations.length == 0) {
+            return Stream.of(toPutOperation(binName, updated));
+        }
+        return Arrays.stream(operations);
+    }
+
     protected BatchRecord getErrorBatchWriteRecord() {
         // empty first step query results will cause AerospikeException for the whole batch
         // from the client as it tries to perform an empty write operation
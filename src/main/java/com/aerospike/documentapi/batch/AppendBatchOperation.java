@@ -5,18 +5,14 @@ import com.aerospike.client.BatchRecord;
 import com.aerospike.client.BatchWrite;
 import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
-import com.aerospike.client.policy.BatchWritePolicy;
 import com.aerospike.documentapi.DocumentApiException;
 import com.aerospike.documentapi.jsonpath.JsonPathQuery;
-import com.aerospike.documentapi.jsonpath.PathDetails;
-import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
 
-import static com.aerospike.documentapi.util.Utils.getPathDetails;
-
 public class AppendBatchOperation extends AbstractBatchOperation {
 
     private final Object objToAppend;
@@ -26,9 +22,15 @@ public class AppendBatchOperation extends AbstractBatchOperation {
         this.objToAppend = objectToPut;
     }
 
+    public AppendBatchOperation(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                                Object objectToPut) {
+        super(key, binNames, preparedPath);
+        this.objToAppend = objectToPut;
+    }
+
     @Override
     protected Object firstStepJsonPathQuery(Map.Entry<String, Object> entry) {
-        return JsonPathQuery.append(jsonPathObject, entry.getValue(), objToAppend);
+        return JsonPathQuery.append(preparedPath, entry.getValue(), objToAppend);
     }
 
     public BatchRecord setSecondStepRecordAndGet() {
@@ -39,19 +41,13 @@ public class AppendBatchOperation extends AbstractBatchOperation {
             throw new AerospikeException(new DocumentApiException.JsonAppendException(getJsonPath()));
         } else {
             if (isRequiringJsonPathQuery()) {
-                // using the original object as the initially parsed one has already been changed within the 1st step
-                final PathDetails pathDetails =
-                        getPathDetails(originalJsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
                 batchOps = firstStepQueryResults().entrySet().stream()
-                        .map(entry -> toPutOperation(entry.getKey(), entry.getValue(), pathDetails))
+                        .flatMap(entry -> toUpdateOperations(entry.getKey(), entry.getValue()))
                         .filter(Objects::nonNull)
                         .toArray(Operation[]::new);
             } else {
-                // needs to be treated without modifying
-                final PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(),
-                        false);
                 batchOps = binNames.stream()
-                        .map(binName -> toAppendOperation(binName, objToAppend, pathDetails))
+                        .map(binName -> toAppendOperation(binName, objToAppend))
                         .filter(Objects::nonNull)
                         .toArray(Operation[]::new);
             }
@@ -59,7 +55,7 @@ public class AppendBatchOperation extends AbstractBatchOperation {
 
         if (batchOps.length > 0) {
             batchRecord = new BatchWrite(
-                    getLutValue().map(v -> Lut.setLutPolicy(new BatchWritePolicy(), v)).orElse(null),
+                    getBatchWritePolicy(),
                     key,
                     batchOps
             );
@@ -70,10 +66,11 @@ public class AppendBatchOperation extends AbstractBatchOperation {
         return batchRecord;
     }
 
-    protected Operation toAppendOperation(String binName, Object objToAppend, PathDetails pathDetails) {
+    protected Operation toAppendOperation(String binName, Object objToAppend) {
         try {
-            return pathDetails.getFinalToken()
-                    .toAerospikeAppendOperation(binName, objToAppend, pathDetails.getCtxArray());
+            // the final token is included into the contexts
+            return preparedPath.getFinalToken()
+                    .toAerospikeAppendOperation(binName, objToAppend, preparedPath.getFullCtxArray());
         } catch (IllegalArgumentException e) {
             errorBinName = binName;
             return null;
@@ -2,6 +2,7 @@ package com.aerospike.documentapi.batch;
 
 import com.aerospike.client.BatchRecord;
 import com.aerospike.client.Key;
+import com.aerospike.documentapi.policy.ConcurrencyControl;
 
 import java.util.Collection;
 
@@ -13,9 +14,29 @@ public interface BatchOperation {
 
     String getJsonPath();
 
+    /**
+     * Whether the operation requires reading the record to apply a JSONPath query before writing it. Only these
+     * operations are combined by key and retried on concurrent updates.
+     *
+     * @return false by default.
+     */
+    default boolean isRequiringJsonPathQuery() {
+        return false;
+    }
+
     BatchRecord getBatchRecord();
 
     void setFirstStepRecord();
 
+    /**
+     * Set the first step record, reading what the given check of concurrent updates of the second step requires.
+     * Called by the client when the operation is performed.
+     *
+     * @param concurrencyControl the check of concurrent updates of the client performing the operation.
+     */
+    default void setFirstStepRecord(ConcurrencyControl concurrencyControl) {
+        setFirstStepRecord();
+    }
+
     BatchRecord setSecondStepRecordAndGet();
 }
@@ -0,0 +1,273 @@
+package com.aerospike.documentapi.batch;
+
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.BatchWritePolicy;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.ConcurrencyControl;
+import com.aerospike.documentapi.util.Generation;
+import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.util.Utils;
+import net.minidev.json.JSONArray;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 2-step operations with the same key combined into one read of the data all of them require and one write of
+ * the changes they make.
+ * <p>
+ * The operations are applied in their order, each one seeing the changes of the previous ones. The results are set
+ * to the batch records of the combined operations by {@link #complete()}, the reads failing with the combined write
+ * as they may have seen changes that have not been stored.
+ */
+public class CoalescedBatchOperation implements BatchOperation {
+
+    private final Key key;
+    private final List<AbstractBatchOperation> operations;
+    private final Collection<String> binNames;
+    private final PreparedDocumentPath prefixPath;
+    // operations that failed in the last attempt, their batch records are already set
+    private final Set<AbstractBatchOperation> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+    // the results of the read operations in the last attempt, set to their batch records by complete()
+    private final Map<GetBatchOperation, Record> readResults = new IdentityHashMap<>();
+    private ConcurrencyControl concurrencyControl = ConcurrencyControl.LAST_UPDATE_TIME;
+    private BatchRecord batchRecord;
+
+    CoalescedBatchOperation(Key key, List<AbstractBatchOperation> operations) {
+        this.key = key;
+        this.operations = operations;
+        this.binNames = operations.stream()
+                .flatMap(operation -> operation.getBinNames().stream())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        this.prefixPath = PreparedDocumentPath.commonPrefix(operations.stream()
+                .map(AbstractBatchOperation::getPreparedPath)
+                .collect(Collectors.toList()));
+        setFirstStepRecord();
+    }
+
+    /**
+     * Combine the 2-step operations having the same key.
+     *
+     * @param batchOperations the operations of a batch.
+     * @return the operations with each group of 2-step operations having the same key replaced by a combined
+     * operation at the position of the first one.
+     * @throws IllegalArgumentException if a 2-step operation has the same key as a 1-step operation.
+     */
+    public static List<BatchOperation> coalesce(List<BatchOperation> batchOperations) {
+        Map<Key, List<BatchOperation>> sameKeyGroups = batchOperations.stream()
+                .collect(Collectors.groupingBy(BatchOperation::getKey));
+        if (sameKeyGroups.size() == batchOperations.size()) {
+            return batchOperations;
+        }
+
+        List<BatchOperation> result = new ArrayList<>(sameKeyGroups.size());
+        for (BatchOperation batchOperation : batchOperations) {
+            List<BatchOperation> sameKeyGroup = sameKeyGroups.get(batchOperation.getKey());
+            if (sameKeyGroup.size() == 1
+                    || sameKeyGroup.stream().noneMatch(BatchOperation::isRequiringJsonPathQuery)) {
+                result.add(batchOperation);
+            } else if (sameKeyGroup.get(0) == batchOperation) {
+                result.add(new CoalescedBatchOperation(batchOperation.getKey(), toCoalescable(sameKeyGroup)));
+            }
+        }
+        return result;
+    }
+
+    private static List<AbstractBatchOperation> toCoalescable(List<BatchOperation> batchOperations) {
+        List<AbstractBatchOperation> result = new ArrayList<>(batchOperations.size());
+        for (BatchOperation batchOperation : batchOperations) {
+            if (!(batchOperation instanceof AbstractBatchOperation) || !batchOperation.isRequiringJsonPathQuery()
+                    || ((AbstractBatchOperation) batchOperation).getPreparedPath().isWholeBin()) {
+                throw new IllegalArgumentException("Two-step operations cannot have the same key as one-step " +
+                        "operations within a batch");
+            }
+            result.add((AbstractBatchOperation) batchOperation);
+        }
+        return result;
+    }
+
+    @Override
+    public Key getKey() {
+        return key;
+    }
+
+    @Override
+    public Collection<String> getBinNames() {
+        return binNames;
+    }
+
+    @Override
+    public String getJsonPath() {
+        return prefixPath.getJsonPath();
+    }
+
+    @Override
+    public boolean isRequiringJsonPathQuery() {
+        return true;
+    }
+
+    @Override
+    public BatchRecord getBatchRecord() {
+        return batchRecord;
+    }
+
+    @Override
+    public void setFirstStepRecord() {
+        setFirstStepRecord(ConcurrencyControl.LAST_UPDATE_TIME);
+    }
+
+    @Override
+    public void setFirstStepRecord(ConcurrencyControl concurrencyControl) {
+        this.concurrencyControl = concurrencyControl;
+        boolean withLut = concurrencyControl == ConcurrencyControl.LAST_UPDATE_TIME;
+        List<Operation> readOperations = new ArrayList<>(binNames.size() + 1);
+        for (String binName : binNames) {
+            readOperations.add(prefixPath.getReadOperations(binName, false)[0]);
+        }
+        if (withLut) {
+            readOperations.add(Lut.LUT_READ_OP);
+        }
+        batchRecord = new BatchRead(key, readOperations.toArray(new Operation[0]));
+        failed.clear();
+        readResults.clear();
+    }
+
+    @Override
+    public BatchRecord setSecondStepRecordAndGet() {
+        Record record = batchRecord.record;
+        if (batchRecord.resultCode != ResultCode.OK || record == null || record.bins == null) {
+            operations.forEach(this::setError);
+            return null;
+        }
+
+        // the data read by the first step, changed by the operations in their order
+        Map<String, Object> documents = new HashMap<>();
+        binNames.forEach(binName -> documents.put(binName, Utils.deepCopy(record.getValue(binName))));
+        boolean hasWrite = false;
+        for (AbstractBatchOperation operation : operations) {
+            if (operation instanceof GetBatchOperation) {
+                read((GetBatchOperation) operation, record, documents);
+            } else {
+                hasWrite |= update(operation, documents);
+            }
+        }
+
+        List<Operation> updateOperations = new ArrayList<>();
+        if (hasWrite) {
+            for (String binName : binNames) {
+                Collections.addAll(updateOperations,
+                        prefixPath.getUpdateOperations(binName, record.getValue(binName), documents.get(binName)));
+            }
+        }
+        if (updateOperations.isEmpty()) {
+            // nothing to write, the batch record of the first step is kept
+            return null;
+        }
+        batchRecord = new BatchWrite(getBatchWritePolicy(record), key, updateOperations.toArray(new Operation[0]));
+        return batchRecord;
+    }
+
+    /**
+     * Set the results to the batch records of the combined operations, the operations sharing the result
+     * of the combined write.
+     */
+    public void complete() {
+        boolean writeFailed = batchRecord.hasWrite && batchRecord.resultCode != ResultCode.OK;
+        for (AbstractBatchOperation operation : operations) {
+            if (failed.contains(operation)) {
+                continue;
+            }
+            if (operation instanceof GetBatchOperation) {
+                // the data read includes the changes of the previous operations
+                operation.batchRecord = writeFailed
+                        ? new BatchRecord(key, null, batchRecord.resultCode, batchRecord.inDoubt, false)
+                        : new BatchRecord(key, readResults.get(operation), false);
+            } else if (batchRecord.hasWrite) {
+                operation.batchRecord = new BatchRecord(key, batchRecord.record, batchRecord.resultCode,
+                        batchRecord.inDoubt, true);
+            } else {
+                // no changes have been made
+                operation.batchRecord = new BatchRecord(key, null, batchRecord.resultCode, false, true);
+            }
+        }
+    }
+
+    private void read(GetBatchOperation operation, Record record, Map<String, Object> documents) {
+        Map<String, Object> bins = new HashMap<>();
+        for (String binName : operation.getBinNames()) {
+            Object result;
+            try {
+                result = operation.firstStepJsonPathQuery(entry(binName, getData(operation, binName, documents)));
+            } catch (Exception e) {
+                setError(operation, binName);
+                return;
+            }
+            if (result instanceof JSONArray && ((JSONArray) result).isEmpty()) {
+                setError(operation, binName);
+                return;
+            }
+            // the following operations may modify the data the result refers to
+            bins.put(binName, Utils.deepCopy(result));
+        }
+        readResults.put(operation, new Record(bins, record.generation, record.expiration));
+    }
+
+    // returns false if the operation has failed, the documents are then left unchanged
+    private boolean update(AbstractBatchOperation operation, Map<String, Object> documents) {
+        // the operation is applied to copies so that a failure on a bin does not keep the changes to the others
+        Map<String, Object> changed = new HashMap<>();
+        for (String binName : operation.getBinNames()) {
+            changed.put(binName, Utils.deepCopy(documents.get(binName)));
+            try {
+                // the data is modified in place
+                operation.firstStepJsonPathQuery(entry(binName, getData(operation, binName, changed)));
+            } catch (Exception e) {
+                setError(operation, binName);
+                return false;
+            }
+        }
+        documents.putAll(changed);
+        return true;
+    }
+
+    // the data an operation reads in the first step, null if it is missing
+    private Object getData(AbstractBatchOperation operation, String binName, Map<String, Object> documents) {
+        return operation.getPreparedPath().getFirstStepData(prefixPath, documents.get(binName));
+    }
+
+    private static Map.Entry<String, Object> entry(String binName, Object data) {
+        return new AbstractMap.SimpleImmutableEntry<>(binName, data);
+    }
+
+    private void setError(AbstractBatchOperation operation) {
+        setError(operation, null);
+    }
+
+    private void setError(AbstractBatchOperation operation, String binName) {
+        operation.errorBinName = binName;
+        operation.batchRecord = operation.getErrorBatchWriteRecord();
+        failed.add(operation);
+    }
+
+    // the write fails if the record has been updated since the first step
+    private BatchWritePolicy getBatchWritePolicy(Record record) {
+        return concurrencyControl == ConcurrencyControl.GENERATION
+                ? Generation.setGenerationPolicy(new BatchWritePolicy(), record.generation)
+                : Lut.setLutPolicy(new BatchWritePolicy(), record.getLong(Lut.LUT_BIN));
+    }
+}
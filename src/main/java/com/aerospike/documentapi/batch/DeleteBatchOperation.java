@@ -5,15 +5,12 @@ import com.aerospike.client.BatchWrite;
 import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
 import com.aerospike.client.cdt.MapOperation;
-import com.aerospike.client.policy.BatchWritePolicy;
 import com.aerospike.documentapi.jsonpath.JsonPathQuery;
-import com.aerospike.documentapi.jsonpath.PathDetails;
-import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 
 import java.util.Collection;
 import java.util.Map;
-
-import static com.aerospike.documentapi.util.Utils.getPathDetails;
+import java.util.Objects;
 
 public class DeleteBatchOperation extends AbstractBatchOperation {
 
@@ -21,9 +18,13 @@ public class DeleteBatchOperation extends AbstractBatchOperation {
         super(key, binNames, jsonPath);
     }
 
+    public DeleteBatchOperation(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
+        super(key, binNames, preparedPath);
+    }
+
     @Override
     protected Object firstStepJsonPathQuery(Map.Entry<String, Object> entry) {
-        return JsonPathQuery.delete(jsonPathObject, entry.getValue());
+        return JsonPathQuery.delete(preparedPath, entry.getValue());
     }
 
     @Override
@@ -37,26 +38,21 @@ public class DeleteBatchOperation extends AbstractBatchOperation {
                     .toArray(Operation[]::new);
         } else {
             if (isRequiringJsonPathQuery()) {
-                // using the original object as the initially parsed one has already been changed within the 1st step
-                final PathDetails pathDetails =
-                        getPathDetails(originalJsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
                 batchOps = firstStepQueryResults().entrySet().stream()
-                        .map(entry -> pathDetails.getFinalToken()
-                                .toAerospikePutOperation(entry.getKey(), entry.getValue(), pathDetails.getCtxArray()))
+                        .flatMap(entry -> toUpdateOperations(entry.getKey(), entry.getValue()))
+                        .filter(Objects::nonNull)
                         .toArray(Operation[]::new);
             } else {
-                final PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(),
-                        true);
                 batchOps = binNames.stream()
-                        .map(binName -> pathDetails.getFinalToken()
-                                .toAerospikeDeleteOperation(binName, pathDetails.getCtxArray()))
+                        .map(binName -> preparedPath.getFinalToken()
+                                .toAerospikeDeleteOperation(binName, preparedPath.getCtxArray()))
                         .toArray(Operation[]::new);
             }
         }
 
         if (batchOps.length > 0) {
             batchRecord = new BatchWrite(
-                    getLutValue().map(v -> Lut.setLutPolicy(new BatchWritePolicy(), v)).orElse(null),
+                    getBatchWritePolicy(),
                     key,
                     batchOps
             );
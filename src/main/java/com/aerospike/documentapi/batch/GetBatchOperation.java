@@ -6,6 +6,7 @@ import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
 import com.aerospike.documentapi.jsonpath.JsonPathQuery;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 import net.minidev.json.JSONArray;
 
 import java.util.Collection;
@@ -22,6 +23,15 @@ public class GetBatchOperation extends AbstractBatchOperation {
         super(key, binNames, jsonPath);
     }
 
+    public GetBatchOperation(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath) {
+        super(key, binNames, preparedPath);
+    }
+
+    @Override
+    protected Object firstStepJsonPathQuery(Map.Entry<String, Object> entry) {
+        return JsonPathQuery.read(preparedPath, entry.getValue());
+    }
+
     @Override
     public BatchRecord setSecondStepRecordAndGet() {
         if (originalJsonPathObject.getTokensNotRequiringSecondStepQuery().isEmpty()) {
@@ -52,7 +62,7 @@ public class GetBatchOperation extends AbstractBatchOperation {
                 Object res;
 
                 try {
-                    res = JsonPathQuery.read(originalJsonPathObject, entry.getValue());
+                    res = firstStepJsonPathQuery(entry);
                 } catch (Exception e) {
                     return batchRecordWithError(entry.getKey());
                 }
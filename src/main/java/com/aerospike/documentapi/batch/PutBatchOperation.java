@@ -5,17 +5,13 @@ import com.aerospike.client.BatchWrite;
 import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
 import com.aerospike.client.cdt.MapOperation;
-import com.aerospike.client.policy.BatchWritePolicy;
 import com.aerospike.documentapi.jsonpath.JsonPathQuery;
-import com.aerospike.documentapi.jsonpath.PathDetails;
-import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
 
-import static com.aerospike.documentapi.util.Utils.getPathDetails;
-
 public class PutBatchOperation extends AbstractBatchOperation {
 
     private final Object objToPut;
@@ -25,9 +21,15 @@ public class PutBatchOperation extends AbstractBatchOperation {
         this.objToPut = objectToPut;
     }
 
+    public PutBatchOperation(Key key, Collection<String> binNames, PreparedDocumentPath preparedPath,
+                             Object objectToPut) {
+        super(key, binNames, preparedPath);
+        this.objToPut = objectToPut;
+    }
+
     @Override
     protected Object firstStepJsonPathQuery(Map.Entry<String, Object> entry) {
-        return JsonPathQuery.putOrSet(jsonPathObject, entry.getValue(), objToPut);
+        return JsonPathQuery.putOrSet(preparedPath, entry.getValue(), objToPut);
     }
 
     @Override
@@ -41,18 +43,13 @@ public class PutBatchOperation extends AbstractBatchOperation {
                     .toArray(Operation[]::new);
         } else {
             if (isRequiringJsonPathQuery()) {
-                // using the original object as the initially parsed one has already been changed within the 1st step
-                final PathDetails pathDetails =
-                        getPathDetails(originalJsonPathObject.getTokensNotRequiringSecondStepQuery(), true);
                 batchOps = firstStepQueryResults().entrySet().stream()
-                        .map(entry -> toPutOperation(entry.getKey(), entry.getValue(), pathDetails))
+                        .flatMap(entry -> toUpdateOperations(entry.getKey(), entry.getValue()))
                         .filter(Objects::nonNull)
                         .toArray(Operation[]::new);
             } else {
-                final PathDetails pathDetails = getPathDetails(jsonPathObject.getTokensNotRequiringSecondStepQuery(),
-                        true);
                 batchOps = binNames.stream()
-                        .map(binName -> toPutOperation(binName, objToPut, pathDetails))
+                        .map(binName -> toPutOperation(binName, objToPut))
                         .filter(Objects::nonNull)
                         .toArray(Operation[]::new);
             }
@@ -60,7 +57,7 @@ public class PutBatchOperation extends AbstractBatchOperation {
 
         if (batchOps.length > 0) {
             batchRecord = new BatchWrite(
-                    getLutValue().map(v -> Lut.setLutPolicy(new BatchWritePolicy(), v)).orElse(null),
+                    getBatchWritePolicy(),
                     key,
                     batchOps
             );
@@ -0,0 +1,206 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.client.Operation;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.CTX;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.cdt.ListReturnType;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapPolicy;
+import com.aerospike.client.cdt.MapReturnType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes the CDT operations changing a first step result into the same value updated by a second step query.
+ * <p>
+ * Map entries are put and removed, list elements are set, appended and removed, each operation having the contexts
+ * of the changed element. The changes are given up in favor of rewriting the whole value when their estimated size
+ * exceeds the size of the value.
+ */
+final class DocumentDiff {
+
+    private static final MapPolicy MAP_POLICY = new MapPolicy();
+    // estimated sizes of an operation header and of a context entry, in bytes
+    private static final long OPERATION_SIZE = 8;
+    private static final long CTX_SIZE = 2;
+    private static final long HEADER_SIZE = 5;
+
+    private final String binName;
+    private final List<Operation> operations = new ArrayList<>();
+    private final List<CTX> contexts;
+    private final long maxSize;
+    private long contextsSize;
+    private long size;
+
+    private DocumentDiff(String binName, CTX[] contexts, long maxSize) {
+        this.binName = binName;
+        this.contexts = new ArrayList<>(Arrays.asList(contexts));
+        this.maxSize = maxSize;
+        this.contextsSize = contexts.length * (CTX_SIZE + HEADER_SIZE);
+    }
+
+    /**
+     * Compute the operations changing the original value into the updated one.
+     *
+     * @param binName  the bin name.
+     * @param contexts contexts leading to the original value, empty for the whole bin.
+     * @param original the original value.
+     * @param updated  the updated value.
+     * @return the operations, empty if the values are equal, or null if the whole value has to be rewritten.
+     */
+    static List<Operation> diff(String binName, CTX[] contexts, Object original, Object updated) {
+        DocumentDiff diff = new DocumentDiff(binName, contexts, estimateSize(updated) + OPERATION_SIZE);
+        return diff.diffValues(original, updated) ? diff.operations : null;
+    }
+
+    // returns false if the updated value cannot be reached by changing the original one
+    private boolean diffValues(Object original, Object updated) {
+        if (original instanceof Map && updated instanceof Map) {
+            return diffMaps((Map<?, ?>) original, (Map<?, ?>) updated);
+        }
+        if (original instanceof List && updated instanceof List) {
+            return diffLists((List<?>) original, (List<?>) updated);
+        }
+        return false;
+    }
+
+    private boolean diffMaps(Map<?, ?> original, Map<?, ?> updated) {
+        for (Map.Entry<?, ?> entry : updated.entrySet()) {
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            Object originalValue = original.get(key);
+            if (originalValue == null && !original.containsKey(key)) {
+                add(MapOperation.put(MAP_POLICY, binName, Value.get(key), Value.get(value), contextArray()),
+                        estimateSize(key) + estimateSize(value));
+            } else if (!isSame(originalValue, value)) {
+                pushContext(CTX.mapKey(Value.get(key)), estimateSize(key));
+                boolean changed = diffValues(originalValue, value);
+                popContext(estimateSize(key));
+                if (!changed) {
+                    add(MapOperation.put(MAP_POLICY, binName, Value.get(key), Value.get(value), contextArray()),
+                            estimateSize(key) + estimateSize(value));
+                }
+            }
+            if (size > maxSize) {
+                return false;
+            }
+        }
+        for (Object key : original.keySet()) {
+            if (!updated.containsKey(key)) {
+                add(MapOperation.removeByKey(binName, Value.get(key), MapReturnType.NONE, contextArray()),
+                        estimateSize(key));
+            }
+        }
+        return size <= maxSize;
+    }
+
+    private boolean diffLists(List<?> original, List<?> updated) {
+        if (updated.size() < original.size()) {
+            return removeElements(original, updated);
+        }
+        for (int i = 0; i < original.size(); i++) {
+            Object originalValue = original.get(i);
+            Object value = updated.get(i);
+            if (!isSame(originalValue, value)) {
+                pushContext(CTX.listIndex(i), HEADER_SIZE);
+                boolean changed = diffValues(originalValue, value);
+                popContext(HEADER_SIZE);
+                if (!changed) {
+                    add(ListOperation.set(binName, i, Value.get(value), contextArray()),
+                            HEADER_SIZE + estimateSize(value));
+                }
+            }
+            if (size > maxSize) {
+                return false;
+            }
+        }
+        if (updated.size() > original.size()) {
+            List<?> appended = updated.subList(original.size(), updated.size());
+            List<Value> values = new ArrayList<>(appended.size());
+            for (Object value : appended) {
+                values.add(Value.get(value));
+            }
+            add(ListOperation.appendItems(binName, values, contextArray()), estimateSize(appended));
+        }
+        return size <= maxSize;
+    }
+
+    // removes the elements missing in the updated list, which must keep the order of the remaining ones
+    private boolean removeElements(List<?> original, List<?> updated) {
+        List<Integer> removed = new ArrayList<>(original.size() - updated.size());
+        int j = 0;
+        for (int i = 0; i < original.size(); i++) {
+            if (j < updated.size() && Objects.equals(original.get(i), updated.get(j))) {
+                j++;
+            } else {
+                removed.add(i);
+            }
+        }
+        if (j < updated.size()) {
+            return false;
+        }
+        // removing from the end so that the indices of the elements to remove do not change
+        for (int i = removed.size() - 1; i >= 0; i--) {
+            add(ListOperation.removeByIndex(binName, removed.get(i), ListReturnType.NONE, contextArray()),
+                    HEADER_SIZE);
+        }
+        return size <= maxSize;
+    }
+
+    private void add(Operation operation, long valueSize) {
+        operations.add(operation);
+        size += OPERATION_SIZE + contextsSize + valueSize;
+    }
+
+    private void pushContext(CTX ctx, long keySize) {
+        contexts.add(ctx);
+        contextsSize += CTX_SIZE + keySize;
+    }
+
+    private void popContext(long keySize) {
+        contexts.remove(contexts.size() - 1);
+        contextsSize -= CTX_SIZE + keySize;
+    }
+
+    private CTX[] contextArray() {
+        return contexts.toArray(new CTX[0]);
+    }
+
+    // containers are compared element by element, other values are compared as a whole
+    private static boolean isSame(Object original, Object updated) {
+        if (original instanceof Map || original instanceof List) {
+            return original == updated;
+        }
+        return Objects.equals(original, updated);
+    }
+
+    // estimated size of a value serialized to the message pack format
+    static long estimateSize(Object value) {
+        if (value instanceof Map) {
+            long size = HEADER_SIZE;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            long size = HEADER_SIZE;
+            for (Object element : (List<?>) value) {
+                size += estimateSize(element);
+            }
+            return size;
+        }
+        if (value instanceof String) {
+            return HEADER_SIZE + ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return HEADER_SIZE + ((byte[]) value).length;
+        }
+        return value == null || value instanceof Boolean ? 1 : 9;
+    }
+}
@@ -0,0 +1,135 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.client.Value;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON provider evaluating JSONPath queries directly on the maps and lists returned by the Aerospike client.
+ * <p>
+ * Map keys that are not strings are matched by their string representation, Aerospike specific values are read
+ * the way they are serialized to JSON: blobs as Base64 strings, GeoJSON and other {@link Value} types as their
+ * underlying objects.
+ */
+class DocumentJsonProvider extends JsonSmartJsonProvider {
+
+    @Override
+    public Object getArrayIndex(Object obj, int idx) {
+        return toJsonValue(super.getArrayIndex(obj, idx));
+    }
+
+    @Override
+    public Object getMapValue(Object obj, String key) {
+        return mapValue((Map<?, ?>) obj, key);
+    }
+
+    @Override
+    public void setProperty(Object obj, Object key, Object value) {
+        if (isMap(obj)) {
+            Object mapKey = findKey((Map<?, ?>) obj, key);
+            super.setProperty(obj, mapKey == null ? key : mapKey, value);
+        } else {
+            super.setProperty(obj, key, value);
+        }
+    }
+
+    @Override
+    public void removeProperty(Object obj, Object key) {
+        if (isMap(obj)) {
+            Object mapKey = findKey((Map<?, ?>) obj, key);
+            super.removeProperty(obj, mapKey == null ? key : mapKey);
+        } else {
+            super.removeProperty(obj, key);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<String> getPropertyKeys(Object obj) {
+        if (isArray(obj)) {
+            return super.getPropertyKeys(obj);
+        }
+        Collection<?> keys = ((Map<?, ?>) obj).keySet();
+        for (Object key : keys) {
+            if (!(key instanceof String)) {
+                List<String> stringKeys = new ArrayList<>(keys.size());
+                keys.forEach(k -> stringKeys.add(String.valueOf(k)));
+                return stringKeys;
+            }
+        }
+        return (Collection<String>) keys;
+    }
+
+    // returns the value of the given key, UNDEFINED if there is no such key
+    static Object mapValue(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        if (value == null && !map.containsKey(key)) {
+            Object mapKey = findKey(map, key);
+            if (mapKey == null) {
+                return UNDEFINED;
+            }
+            value = map.get(mapKey);
+        }
+        return toJsonValue(value);
+    }
+
+    // returns the element at the given, possibly negative, index, UNDEFINED if there is no such element
+    static Object listValue(List<?> list, int index) {
+        int position = index < 0 ? list.size() + index : index;
+        return position < 0 || position >= list.size() ? UNDEFINED : toJsonValue(list.get(position));
+    }
+
+    // returns the value at the given path of map keys and list indices, UNDEFINED if there is no such value
+    static Object pathValue(Object obj, Object[] path) {
+        Object value = obj;
+        for (Object step : path) {
+            if (step instanceof String && value instanceof Map) {
+                value = mapValue((Map<?, ?>) value, (String) step);
+            } else if (step instanceof Integer && value instanceof List) {
+                value = listValue((List<?>) value, (Integer) step);
+            } else {
+                return UNDEFINED;
+            }
+            if (value == UNDEFINED) {
+                return UNDEFINED;
+            }
+        }
+        return value;
+    }
+
+    // sets the value of the key matching the given one, keeping the type of the existing key
+    @SuppressWarnings("unchecked")
+    static void putMapValue(Map<?, ?> map, String key, Object value) {
+        Object mapKey = findKey(map, key);
+        ((Map<Object, Object>) map).put(mapKey == null ? key : mapKey, value);
+    }
+
+    // returns the key of the given map matching the given one, null if there is none
+    private static Object findKey(Map<?, ?> map, Object key) {
+        if (map.containsKey(key)) {
+            return key;
+        }
+        String stringKey = String.valueOf(key);
+        for (Object mapKey : map.keySet()) {
+            if (!(mapKey instanceof String) && stringKey.equals(String.valueOf(mapKey))) {
+                return mapKey;
+            }
+        }
+        return null;
+    }
+
+    static Object toJsonValue(Object value) {
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        if (value instanceof Value) {
+            return toJsonValue(((Value) value).getObject());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aerospike.documentapi.jsonpath;
+
+/**
+ * Compiled filter expression evaluated on the maps and lists returned by the Aerospike client.
+ */
+@FunctionalInterface
+interface FilterExpression {
+
+    /**
+     * Check whether an element matches the filter.
+     *
+     * @param item the filtered element, referred to as {@code @} in the filter.
+     * @return whether the element matches.
+     */
+    boolean test(Object item);
+}
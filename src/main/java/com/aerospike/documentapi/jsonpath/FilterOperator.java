@@ -0,0 +1,133 @@
+package com.aerospike.documentapi.jsonpath;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static com.jayway.jsonpath.spi.json.JsonProvider.UNDEFINED;
+
+/**
+ * Comparison operators of native filter expressions, following the semantics of Jayway JSONPath filters.
+ */
+enum FilterOperator {
+
+    EQ("==") {
+        @Override
+        boolean apply(Object left, Object right) {
+            return isEqual(left, right);
+        }
+    },
+    NE("!=") {
+        @Override
+        boolean apply(Object left, Object right) {
+            return !isEqual(left, right);
+        }
+    },
+    LT("<") {
+        @Override
+        boolean apply(Object left, Object right) {
+            Integer result = compare(left, right);
+            return result != null && result < 0;
+        }
+    },
+    LE("<=") {
+        @Override
+        boolean apply(Object left, Object right) {
+            Integer result = compare(left, right);
+            return result != null && result <= 0;
+        }
+    },
+    GT(">") {
+        @Override
+        boolean apply(Object left, Object right) {
+            Integer result = compare(left, right);
+            return result != null && result > 0;
+        }
+    },
+    GE(">=") {
+        @Override
+        boolean apply(Object left, Object right) {
+            Integer result = compare(left, right);
+            return result != null && result >= 0;
+        }
+    };
+
+    private final String string;
+
+    FilterOperator(String string) {
+        this.string = string;
+    }
+
+    public String getString() {
+        return string;
+    }
+
+    /**
+     * Apply the operator to the values of two operands.
+     *
+     * @param left  value of the left operand, {@code JsonProvider.UNDEFINED} if the path does not exist.
+     * @param right value of the right operand, {@code JsonProvider.UNDEFINED} if the path does not exist.
+     * @return whether the values satisfy the operator.
+     */
+    abstract boolean apply(Object left, Object right);
+
+    private static boolean isEqual(Object left, Object right) {
+        if (left == UNDEFINED || right == UNDEFINED) {
+            return false;
+        }
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right) == 0;
+        }
+        // strings are compared with numbers as numbers
+        if (left instanceof Number && right instanceof String) {
+            return isEqual((Number) left, (String) right);
+        }
+        if (left instanceof String && right instanceof Number) {
+            return isEqual((Number) right, (String) left);
+        }
+        return left.equals(right);
+    }
+
+    private static boolean isEqual(Number number, String string) {
+        try {
+            return toBigDecimal(number).compareTo(new BigDecimal(string)) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // returns null if the values are not comparable
+    private static Integer compare(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right);
+        }
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareTo((String) right);
+        }
+        return null;
+    }
+
+    private static int compareNumbers(Number left, Number right) {
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        if (left instanceof BigDecimal || left instanceof BigInteger
+                || right instanceof BigDecimal || right instanceof BigInteger) {
+            return toBigDecimal(left).compareTo(toBigDecimal(right));
+        }
+        double leftValue = left.doubleValue();
+        double rightValue = right.doubleValue();
+        return leftValue < rightValue ? -1 : (leftValue > rightValue ? 1 : 0);
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short
+                || number instanceof Byte;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        return number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+    }
+}
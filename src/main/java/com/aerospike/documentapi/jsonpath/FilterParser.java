@@ -0,0 +1,373 @@
+package com.aerospike.documentapi.jsonpath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.CLOSE_BRACKET;
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.DOT;
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.FILTER_END_INDICATION;
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.FILTER_START_INDICATION;
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.OPEN_BRACKET;
+import static com.jayway.jsonpath.spi.json.JsonProvider.UNDEFINED;
+
+/**
+ * Compiles filters like {@code [?(@.price < 10 && @.author =~ /.*REES/i)]} into {@link FilterExpression} objects.
+ * <p>
+ * Supported are comparisons ({@code ==, !=, <, <=, >, >=}) of paths relative to the filtered element and literals
+ * (strings, numbers, {@code true}, {@code false} and {@code null}), existence checks, regular expressions matching
+ * and logical {@code &&}, {@code ||} and {@code !} with parentheses. Filters using other syntax, e.g. functions,
+ * root paths or the {@code in} operator, are not compiled and left to Jayway JSONPath.
+ */
+final class FilterParser {
+
+    private static final char CURRENT = '@';
+    private static final char REGEX_DELIMITER = '/';
+
+    private final String filter;
+    private final int end;
+    private int pos;
+
+    private FilterParser(String filter, int start, int end) {
+        this.filter = filter;
+        this.pos = start;
+        this.end = end;
+    }
+
+    /**
+     * Compile a filter.
+     *
+     * @param filter the filter including the enclosing brackets, e.g. {@code [?(@.price < 10)]}.
+     * @return the compiled filter, or null if the filter uses unsupported syntax.
+     */
+    static FilterExpression parse(String filter) {
+        if (!filter.startsWith(FILTER_START_INDICATION) || !filter.endsWith(FILTER_END_INDICATION)) {
+            return null;
+        }
+        FilterParser parser = new FilterParser(filter, FILTER_START_INDICATION.length(),
+                filter.length() - FILTER_END_INDICATION.length());
+        try {
+            FilterExpression expression = parser.parseOr();
+            parser.skipSpaces();
+            return parser.pos == parser.end ? expression : null;
+        } catch (UnsupportedFilterException e) {
+            return null;
+        }
+    }
+
+    private FilterExpression parseOr() {
+        FilterExpression expression = parseAnd();
+        while (consume("||")) {
+            FilterExpression left = expression;
+            FilterExpression right = parseAnd();
+            expression = item -> left.test(item) || right.test(item);
+        }
+        return expression;
+    }
+
+    private FilterExpression parseAnd() {
+        FilterExpression expression = parseUnary();
+        while (consume("&&")) {
+            FilterExpression left = expression;
+            FilterExpression right = parseUnary();
+            expression = item -> left.test(item) && right.test(item);
+        }
+        return expression;
+    }
+
+    private FilterExpression parseUnary() {
+        if (consume("(")) {
+            FilterExpression expression = parseOr();
+            if (!consume(")")) {
+                throw new UnsupportedFilterException();
+            }
+            return expression;
+        }
+        if (consume("!")) {
+            FilterExpression negated;
+            if (peek() == '(') {
+                negated = parseUnary();
+            } else {
+                // only an existence check can be negated without parentheses
+                if (peek() != CURRENT) {
+                    throw new UnsupportedFilterException();
+                }
+                int start = pos;
+                negated = parseExists(parsePath(), pos - start);
+                if (parseOperator() != null) {
+                    throw new UnsupportedFilterException();
+                }
+            }
+            return item -> !negated.test(item);
+        }
+        return parseRelation();
+    }
+
+    private FilterExpression parseRelation() {
+        boolean isPath = peek() == CURRENT;
+        int start = pos;
+        Function<Object, Object> left = parseOperand();
+        int length = pos - start;
+        if (consume("=~")) {
+            Pattern pattern = parseRegex();
+            return item -> pattern.matcher(toRegexInput(left.apply(item))).matches();
+        }
+        FilterOperator operator = parseOperator();
+        if (operator == null) {
+            if (!isPath) {
+                throw new UnsupportedFilterException();
+            }
+            return parseExists(left, length);
+        }
+        Function<Object, Object> right = parseOperand();
+        return item -> operator.apply(left.apply(item), right.apply(item));
+    }
+
+    private FilterExpression parseExists(Function<Object, Object> path, int length) {
+        // the filtered element itself always exists
+        if (length == 1) {
+            throw new UnsupportedFilterException();
+        }
+        return item -> path.apply(item) != UNDEFINED;
+    }
+
+    private FilterOperator parseOperator() {
+        skipSpaces();
+        FilterOperator result = null;
+        for (FilterOperator operator : FilterOperator.values()) {
+            if (filter.startsWith(operator.getString(), pos)
+                    && (result == null || operator.getString().length() > result.getString().length())) {
+                result = operator;
+            }
+        }
+        if (result != null) {
+            pos += result.getString().length();
+            // strict comparisons like === are not supported
+            if (pos < end && filter.charAt(pos) == '=') {
+                throw new UnsupportedFilterException();
+            }
+        }
+        return result;
+    }
+
+    // returns a function computing the value of the operand for the filtered element
+    private Function<Object, Object> parseOperand() {
+        char c = peek();
+        if (c == CURRENT) {
+            return parsePath();
+        }
+        Object value;
+        if (c == '\'' || c == '"') {
+            value = parseString(c);
+        } else if (c == '-' || Character.isDigit(c)) {
+            value = parseNumber();
+        } else if (consumeWord("true")) {
+            value = Boolean.TRUE;
+        } else if (consumeWord("false")) {
+            value = Boolean.FALSE;
+        } else if (consumeWord("null")) {
+            value = null;
+        } else {
+            throw new UnsupportedFilterException();
+        }
+        return item -> value;
+    }
+
+    private Function<Object, Object> parsePath() {
+        pos++;
+        List<Object> steps = new ArrayList<>();
+        while (pos < end) {
+            char c = filter.charAt(pos);
+            if (c == DOT && pos + 1 < end && isKeyChar(filter.charAt(pos + 1))) {
+                int start = ++pos;
+                while (pos < end && isKeyChar(filter.charAt(pos))) {
+                    pos++;
+                }
+                steps.add(filter.substring(start, pos));
+            } else if (c == OPEN_BRACKET && pos + 1 < end && filter.charAt(pos + 1) == '\'') {
+                pos++;
+                steps.add(parseString('\''));
+                if (!consumeChar(CLOSE_BRACKET)) {
+                    throw new UnsupportedFilterException();
+                }
+            } else if (c == OPEN_BRACKET) {
+                pos++;
+                steps.add(parseIndex());
+                if (!consumeChar(CLOSE_BRACKET)) {
+                    throw new UnsupportedFilterException();
+                }
+            } else {
+                break;
+            }
+        }
+        Object[] path = steps.toArray();
+        return item -> DocumentJsonProvider.pathValue(item, path);
+    }
+
+    private Integer parseIndex() {
+        int start = pos;
+        if (pos < end && filter.charAt(pos) == '-') {
+            pos++;
+        }
+        while (pos < end && Character.isDigit(filter.charAt(pos))) {
+            pos++;
+        }
+        try {
+            return Integer.valueOf(filter.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw new UnsupportedFilterException();
+        }
+    }
+
+    private String parseString(char quote) {
+        int start = pos + 1;
+        int close = filter.indexOf(quote, start);
+        // escaped characters are left to Jayway JSONPath
+        if (close < 0 || close >= end || filter.lastIndexOf('\\', close) >= start) {
+            throw new UnsupportedFilterException();
+        }
+        pos = close + 1;
+        return filter.substring(start, close);
+    }
+
+    private Number parseNumber() {
+        int start = pos;
+        boolean integral = true;
+        while (pos < end) {
+            char c = filter.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+            } else if (!Character.isDigit(c)
+                    && !((c == '-' || c == '+') && (pos == start || isExponent(filter.charAt(pos - 1))))) {
+                break;
+            }
+            pos++;
+        }
+        String number = filter.substring(start, pos);
+        try {
+            if (integral) {
+                try {
+                    return Long.valueOf(number);
+                } catch (NumberFormatException e) {
+                    // too large for a long
+                    return Double.valueOf(number);
+                }
+            }
+            return Double.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw new UnsupportedFilterException();
+        }
+    }
+
+    private Pattern parseRegex() {
+        skipSpaces();
+        if (!consumeChar(REGEX_DELIMITER)) {
+            throw new UnsupportedFilterException();
+        }
+        int start = pos;
+        while (pos < end && filter.charAt(pos) != REGEX_DELIMITER) {
+            pos += filter.charAt(pos) == '\\' ? 2 : 1;
+        }
+        if (pos >= end) {
+            throw new UnsupportedFilterException();
+        }
+        String regex = filter.substring(start, pos++);
+        int flags = 0;
+        while (pos < end && Character.isLetter(filter.charAt(pos))) {
+            flags |= toPatternFlag(filter.charAt(pos++));
+        }
+        try {
+            return Pattern.compile(regex, flags);
+        } catch (PatternSyntaxException e) {
+            throw new UnsupportedFilterException();
+        }
+    }
+
+    private static int toPatternFlag(char flag) {
+        switch (flag) {
+            case 'd':
+                return Pattern.UNIX_LINES;
+            case 'i':
+                return Pattern.CASE_INSENSITIVE;
+            case 'x':
+                return Pattern.COMMENTS;
+            case 'm':
+                return Pattern.MULTILINE;
+            case 's':
+                return Pattern.DOTALL;
+            case 'u':
+                return Pattern.UNICODE_CASE;
+            case 'U':
+                return Pattern.UNICODE_CHARACTER_CLASS;
+            default:
+                throw new UnsupportedFilterException();
+        }
+    }
+
+    // strings, numbers and booleans are matched by their string representation, other values as empty strings
+    private static String toRegexInput(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "";
+    }
+
+    private static boolean isKeyChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '$';
+    }
+
+    private static boolean isExponent(char c) {
+        return c == 'e' || c == 'E';
+    }
+
+    private char peek() {
+        skipSpaces();
+        return pos < end ? filter.charAt(pos) : 0;
+    }
+
+    private boolean consume(String expected) {
+        skipSpaces();
+        if (filter.startsWith(expected, pos) && pos + expected.length() <= end) {
+            pos += expected.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean consumeChar(char expected) {
+        if (pos < end && filter.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean consumeWord(String word) {
+        int wordEnd = pos + word.length();
+        if (filter.startsWith(word, pos) && wordEnd <= end
+                && (wordEnd == end || !isKeyChar(filter.charAt(wordEnd)))) {
+            pos = wordEnd;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpaces() {
+        while (pos < end && Character.isWhitespace(filter.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    // signals a filter that cannot be compiled, never leaves the parser
+    private static class UnsupportedFilterException extends RuntimeException {
+
+        UnsupportedFilterException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.documentapi.token.ListToken;
+import com.aerospike.documentapi.token.MapToken;
+import com.aerospike.documentapi.token.Token;
+import com.aerospike.documentapi.token.TokenType;
+import net.minidev.json.JSONArray;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.jayway.jsonpath.spi.json.JsonProvider.UNDEFINED;
+
+/**
+ * Second step query consisting of a filter optionally followed by map keys and list indices,
+ * e.g. {@code $[?(@.price < 10)].title}, compiled to be read without Jayway JSONPath.
+ * <p>
+ * The results are the same as the ones of Jayway JSONPath: the filter is applied to the elements of a list or to a map
+ * itself, and the values missing at the path following the filter are skipped.
+ */
+final class FilterQuery {
+
+    private final FilterExpression filter;
+    // map keys and list indices following the filter
+    private final Object[] path;
+
+    private FilterQuery(FilterExpression filter, Object[] path) {
+        this.filter = filter;
+        this.path = path;
+    }
+
+    /**
+     * Compile the tokens of a second step query.
+     *
+     * @param queryTokens the tokens requiring a JSONPath query.
+     * @return the compiled query, or null if the tokens are not supported.
+     */
+    static FilterQuery compile(List<Token> queryTokens) {
+        if (queryTokens.isEmpty() || queryTokens.get(0).getType() != TokenType.FILTER) {
+            return null;
+        }
+        FilterExpression filter = FilterParser.parse(queryTokens.get(0).getString());
+        if (filter == null) {
+            return null;
+        }
+        Object[] path = new Object[queryTokens.size() - 1];
+        for (int i = 1; i < queryTokens.size(); i++) {
+            Token token = queryTokens.get(i);
+            if (token.getType() == TokenType.MAP) {
+                path[i - 1] = ((MapToken) token).getKey();
+            } else if (token.getType() == TokenType.LIST) {
+                path[i - 1] = ((ListToken) token).getListPosition();
+            } else {
+                return null;
+            }
+        }
+        return new FilterQuery(filter, path);
+    }
+
+    /**
+     * Check whether the query can be read from the given object, filters cannot be applied to primitives.
+     *
+     * @param json the first step result.
+     * @return whether the object is a list or a map.
+     */
+    boolean canRead(Object json) {
+        return json instanceof List || json instanceof Map;
+    }
+
+    /**
+     * Retrieve the values matching the query.
+     *
+     * @param json the first step result, a list or a map.
+     * @return list of the matching values.
+     */
+    JSONArray read(Object json) {
+        JSONArray result = new JSONArray();
+        if (json instanceof List) {
+            for (Object item : (List<?>) json) {
+                addIfMatches(result, DocumentJsonProvider.toJsonValue(item));
+            }
+        } else {
+            addIfMatches(result, json);
+        }
+        return result;
+    }
+
+    private void addIfMatches(JSONArray result, Object item) {
+        if (filter.test(item)) {
+            Object value = DocumentJsonProvider.pathValue(item, path);
+            if (value != UNDEFINED) {
+                result.add(value);
+            }
+        }
+    }
+}
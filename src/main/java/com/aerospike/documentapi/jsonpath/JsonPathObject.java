@@ -4,16 +4,18 @@ import com.aerospike.documentapi.token.ContextAwareToken;
 import com.aerospike.documentapi.token.Token;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.aerospike.documentapi.jsonpath.JsonPathParser.DOT;
 
 public class JsonPathObject {
 
-    private final List<ContextAwareToken> notQueryTokens;
-    private final List<Token> queryTokens;
+    private List<ContextAwareToken> notQueryTokens;
+    private List<Token> queryTokens;
     private String jsonPathSecondStepQuery = "";
     private boolean requiresJsonPathQuery;
+    private boolean unmodifiable;
 
     public JsonPathObject() {
         notQueryTokens = new ArrayList<>();
@@ -33,6 +35,24 @@ public class JsonPathObject {
         return newJsonPathObject;
     }
 
+    /**
+     * Make this object read-only so that it can be shared between threads, e.g. when cached.
+     *
+     * @return this object.
+     */
+    public JsonPathObject toUnmodifiable() {
+        if (!unmodifiable) {
+            notQueryTokens = Collections.unmodifiableList(notQueryTokens);
+            queryTokens = Collections.unmodifiableList(queryTokens);
+            unmodifiable = true;
+        }
+        return this;
+    }
+
+    public boolean isUnmodifiable() {
+        return unmodifiable;
+    }
+
     public List<ContextAwareToken> getTokensNotRequiringSecondStepQuery() {
         return notQueryTokens;
     }
@@ -65,6 +85,7 @@ public class JsonPathObject {
     }
 
     public void setRequiresJsonPathQuery(boolean status) {
+        validateModifiable();
         requiresJsonPathQuery = status;
     }
 
@@ -73,13 +94,16 @@ public class JsonPathObject {
     }
 
     public void setJsonPathSecondStepQuery(String jsonPathSecondStepQuery) {
+        validateModifiable();
         this.jsonPathSecondStepQuery = jsonPathSecondStepQuery;
     }
 
     public void appendToJsonPathQuery(Token queryToken) {
+        validateModifiable();
         String tokenString = queryToken.getQueryConcatString();
         switch (queryToken.getType()) {
             case LIST:
+            case LIST_SLICE:
             case LIST_WILDCARD:
             case SCAN:
             case FILTER:
@@ -96,4 +120,10 @@ public class JsonPathObject {
                 break;
         }
     }
+
+    private void validateModifiable() {
+        if (unmodifiable) {
+            throw new UnsupportedOperationException("Unsupported operation: JSONPath object is unmodifiable");
+        }
+    }
 }
@@ -3,14 +3,10 @@ package com.aerospike.documentapi.jsonpath;
 import com.aerospike.client.cdt.CTX;
 import com.aerospike.documentapi.DocumentApiException;
 import com.aerospike.documentapi.token.*;
+import com.aerospike.documentapi.util.LruCache;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
-import java.util.regex.Pattern;
 
 /**
  * Utility class for parsing JSONPath strings.
@@ -36,9 +32,18 @@ public class JsonPathParser {
     public static final char OPEN_BRACKET = '[';
     public static final char CLOSE_BRACKET = ']';
     public static final char WILDCARD = '*';
+    public static final char SLICE_SEPARATOR = ':';
     static final String DOCUMENT_ROOT_TOKEN = "$";
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final LruCache<String, PreparedDocumentPath> CACHE = new LruCache<>(DEFAULT_CACHE_SIZE);
     // For storing representation of json path tokens
     private final JsonPathObject jsonPathObject;
+    // number of tokens in the current dot separated part, and the type of its last token
+    private int partSize;
+    private TokenType partType;
+    // the same for the previous part, used to tell whether a trailing wildcard can be skipped
+    private int prevPartSize;
+    private TokenType prevPartType;
 
     public JsonPathParser() {
         this.jsonPathObject = new JsonPathObject();
@@ -52,6 +57,41 @@ public class JsonPathParser {
         return tokens.remove(tokens.size() - 1);
     }
 
+    /**
+     * Parse a JSON path string into an unmodifiable {@link JsonPathObject} object, reusing the result of a previous
+     * parsing of the same string if it is still cached.
+     *
+     * @param jsonString the given JSON path string.
+     * @return the unmodifiable {@link JsonPathObject} object.
+     * @throws DocumentApiException if fails to parse the JSON path string.
+     */
+    public static JsonPathObject parseCached(String jsonString) {
+        return prepare(jsonString).getJsonPathObject();
+    }
+
+    /**
+     * Parse a JSON path string into a {@link PreparedDocumentPath} object, reusing the result of a previous
+     * preparation of the same string if it is still cached.
+     *
+     * @param jsonString the given JSON path string.
+     * @return the {@link PreparedDocumentPath} object.
+     * @throws DocumentApiException if fails to parse the JSON path string.
+     */
+    public static PreparedDocumentPath prepare(String jsonString) {
+        return CACHE.get(jsonString, path -> new PreparedDocumentPath(path, new JsonPathParser().parse(path)));
+    }
+
+    /**
+     * Get the cache used by {@link #prepare(String)} and {@link #parseCached(String)}, e.g. to check its hit, miss
+     * and eviction counters, or to change its size from {@link #DEFAULT_CACHE_SIZE} with
+     * {@link LruCache#setMaxSize(int)} when the application uses more distinct JSON paths.
+     *
+     * @return the prepared JSON paths cache.
+     */
+    public static LruCache<String, PreparedDocumentPath> getCache() {
+        return CACHE;
+    }
+
     /**
      * Given a list of tokens, convert this to the list of contexts you would need to retrieve the JSON path represented
      * by the list of tokens.
@@ -67,165 +107,256 @@ public class JsonPathParser {
 
     /**
      * Parse a JSON path string into a {@link JsonPathObject} object.
+     * <p>
+     * The string is read in a single pass, tokens are appended to the resulting object as soon as they are recognized.
      *
      * @param jsonString the given JSON path string.
      * @return the {@link JsonPathObject} object.
      * @throws DocumentApiException if fails to parse the JSON path string.
      */
     public JsonPathObject parse(String jsonString) {
-        jsonString = jsonString.trim();
-        validateJsonPathPrefix(jsonString);
-
-        List<String> pathSplit = Arrays.asList(
-                jsonString.split(Pattern.quote(String.valueOf(DOT)), -1)
-        );
-        validatePathSplit(jsonString, pathSplit);
-        pathSplit = Collections.unmodifiableList(combineFilterParts(pathSplit));
-
-        List<Token> prev = null;
-        for (int i = 0; i < pathSplit.size(); i++) {
-            String pathPart = pathSplit.get(i);
-            List<Token> curr = parseToken(pathPart);
-            if (skipIteration(curr, prev, pathSplit.size() == i + 1)) {
-                prev = curr;
-                continue;
+        String path = jsonString.trim();
+        validateJsonPathPrefix(path);
+
+        int length = path.length();
+        // the first dot separated part is the root optionally followed by list elements like $[1][2]
+        int pos = 1;
+        int partStart = 0;
+        partSize = 0;
+        partType = null;
+        while (pos < length && path.charAt(pos) == OPEN_BRACKET) {
+            pos = parseBrackets(path, pos, partStart);
+        }
+        endPart(TokenType.ROOT);
+
+        while (pos < length) {
+            if (path.charAt(pos) != DOT) {
+                throw new DocumentApiException.JsonPathParseException(path.substring(partStart));
+            }
+            pos++;
+            if (pos < length && path.charAt(pos) == DOT) {
+                // deep scan is a separate part between two dots
+                pos++;
+                addToken(new ScanToken(DEEP_SCAN));
+                endPart(null);
             }
-            curr.forEach(jsonPathObject::addToken);
-            prev = curr;
+            if (pos == length || path.charAt(pos) == DOT) {
+                // path either ends with a dot or has 3 or more dots in the middle
+                throw new DocumentApiException.JsonPathException(path);
+            }
+            partStart = pos;
+            pos = parsePart(path, pos);
         }
         return jsonPathObject;
     }
 
-    private List<String> combineFilterParts(List<String> pathList) {
-        List<String> newList = new ArrayList<>();
-        String prev = null;
-        String filter = "";
-        String preFilter = "";
-        boolean filterProcStarted = false;
-        for (int i = 0; i < pathList.size(); i++) {
-            String curr = pathList.get(i);
-            if (prev != null && curr != null && !curr.isEmpty()
-                    && prev.contains(FILTER_START_INDICATION)
-                    && !prev.contains(String.valueOf(CLOSE_BRACKET)) // has "[?" and not "]"
-            ) {
-                if (!filterProcStarted) {
-                    int filterBeginningIdx = prev.indexOf(FILTER_START_INDICATION);
-                    if (filterBeginningIdx > 0) {
-                        preFilter = prev.substring(0, filterBeginningIdx);
-                        filter = prev.substring(filterBeginningIdx);
-                        newList.set(i - 1, preFilter);
-                    }
-                    filterProcStarted = true;
-                }
+    private void addToken(Token token) {
+        jsonPathObject.addToken(token);
+        partSize++;
+        partType = token.getType();
+    }
 
-                if (curr.contains(FILTER_END_INDICATION)) {
-                    filter += DOT + curr;
-                    newList.add(filter); // combined filter value between "[?" and "]"
-                    prev = curr;
-                    continue;
-                } else {
-                    filter += DOT + curr;
-                    continue;
+    private void endPart(TokenType emptyPartType) {
+        if (partSize == 0 && emptyPartType != null) {
+            partSize = 1;
+            partType = emptyPartType;
+        }
+        prevPartSize = partSize;
+        prevPartType = partType;
+        partSize = 0;
+        partType = null;
+    }
+
+    // parses a part between dots starting at the given position, returns the position following it
+    private int parsePart(String path, int start) {
+        int length = path.length();
+        int pos = start;
+        if (path.charAt(pos) == WILDCARD && (pos + 1 == length || path.charAt(pos + 1) == DOT
+                || path.charAt(pos + 1) == OPEN_BRACKET)) {
+            pos++;
+            // if path ends with a map wildcard after a map or a list element like $.example.*, $[10].* or $.*
+            if (pos == length && prevPartSize == 1
+                    && (prevPartType == TokenType.MAP || prevPartType == TokenType.LIST
+                    || prevPartType == TokenType.ROOT)) {
+                partSize = 1;
+                partType = TokenType.WILDCARD;
+            } else {
+                addToken(new WildcardToken(String.valueOf(WILDCARD)));
+            }
+        } else if (path.charAt(pos) != OPEN_BRACKET) {
+            while (pos < length && path.charAt(pos) != DOT && path.charAt(pos) != OPEN_BRACKET) {
+                if (path.charAt(pos) == CLOSE_BRACKET) {
+                    throw strayCloseBracket(path, start, pos);
                 }
+                pos++;
             }
-            prev = curr;
-            newList.add(curr);
+            parseKey(path, start, pos);
         }
-
-        return newList;
+        while (pos < length && path.charAt(pos) == OPEN_BRACKET) {
+            pos = parseBrackets(path, pos, start);
+            // extra closing brackets following a bracket expression like $.key[1]] are ignored
+            while (pos < length && path.charAt(pos) == CLOSE_BRACKET) {
+                pos++;
+            }
+        }
+        if (pos < length && path.charAt(pos) != DOT) {
+            throw new DocumentApiException.JsonPathParseException(path.substring(start));
+        }
+        endPart(TokenType.ROOT);
+        return pos;
     }
 
-    private boolean skipIteration(List<Token> curr, List<Token> prev, boolean isLast) {
-        boolean res;
-
-        // if path ends with a map wildcard after a map or a list element like $.example.*, $.example[10].* or $.*
-        res = (curr != null && prev != null
-                && curr.size() == 1 && prev.size() == 1
-                && curr.get(0).getType() == TokenType.WILDCARD && isLast
-                && curr.get(0).getString().charAt(0) == WILDCARD // "*", not "[*]"
-                && (prev.get(0).getType() == TokenType.MAP || prev.get(0).getType() == TokenType.LIST
-                || prev.get(0).getType() == TokenType.ROOT))
-                // if current element is root
-                || (curr != null && curr.size() == 1 && curr.get(0).getType() == TokenType.ROOT)
-        ;
+    // a closing bracket in a key is not a parse error only if it ends the part like in $.key]
+    private static DocumentApiException strayCloseBracket(String path, int start, int pos) {
+        int partEnd = path.indexOf(DOT, pos);
+        if (partEnd < 0) {
+            partEnd = path.length();
+        }
+        if (path.charAt(partEnd - 1) == CLOSE_BRACKET) {
+            return new DocumentApiException.JsonPathException(path.substring(start, partEnd));
+        }
+        return new DocumentApiException.JsonPathParseException(path.substring(start, partEnd));
+    }
 
-        return res;
+    private void parseKey(String path, int start, int end) {
+        char last = path.charAt(end - 1);
+        if (last == DOC_ROOT || last == WILDCARD) {
+            if (end - start == 1 && last == DOC_ROOT) {
+                // root in the middle of a path is ignored
+                return;
+            }
+            throw new DocumentApiException.JsonPathException(path.substring(start, end));
+        }
+        String key = path.substring(start, end);
+        if (last == ')' && isFunction(key)) {
+            addToken(new FunctionToken(key));
+        } else {
+            addToken(new MapToken(key));
+        }
     }
 
-    private void validatePathSplit(String jsonPath, List<String> jsonPathSplit) {
-        Iterator<String> iter = jsonPathSplit.listIterator();
-        String prev = null;
-        String next;
-        while (iter.hasNext()) {
-            next = iter.next();
-            if (next.equals("")) {
-                if ("".equals(prev)) {
-                    // path either ends with 2 or more dots or has 3 or more dots in the middle
-                    throw new DocumentApiException.JsonPathException(jsonPath);
-                }
-                prev = next;
-            } else {
-                prev = null;
+    private static boolean isFunction(String key) {
+        for (String function : functionIndication) {
+            if (key.endsWith(function)) {
+                return true;
             }
         }
+        return false;
     }
 
-    private List<Token> parseToken(String token) {
-        // the initial string has been split between '.' and validated
-        if (token.length() == 0) {
-            token = DEEP_SCAN;
-            Optional<Token> optional = ScanToken.match(token);
-            return tokensListOrFail(optional, token);
+    // parses a bracket expression starting at the given position, returns the position following it
+    private int parseBrackets(String path, int start, int partStart) {
+        int length = path.length();
+        if (path.startsWith(FILTER_START_INDICATION, start)) {
+            int end = filterEnd(path, start + FILTER_START_INDICATION.length());
+            if (end < 0) {
+                throw new DocumentApiException.JsonPathException(path.substring(partStart));
+            }
+            addToken(new FilterToken(path.substring(start, end)));
+            return end;
         }
 
-        switch (token.charAt(token.length() - 1)) {
-            case DOC_ROOT:
-                Optional<Token> optional = RootToken.match(token);
-                return tokensListOrFail(optional, token);
-            case CLOSE_BRACKET:
-                return processPartWithBracketsOrFail(token);
-            case WILDCARD:
-                optional = WildcardToken.match(token);
-                return tokensListOrFail(optional, token);
-            default:
-                return processDefaultOrFail(token);
+        int close = path.indexOf(CLOSE_BRACKET, start);
+        int dot = path.indexOf(DOT, start);
+        if (close < 0 || (dot >= 0 && dot < close)) {
+            // unbalanced bracket
+            throw new DocumentApiException.JsonPathParseException(path.substring(partStart));
+        }
+        int pos = start + 1;
+        if (path.charAt(pos) == WILDCARD && path.charAt(pos + 1) == CLOSE_BRACKET) {
+            addToken(new WildcardToken(String.valueOf(WILDCARD), true));
+            return pos + 2;
+        }
+        int indexEnd = indexEnd(path, pos);
+        Integer index = indexEnd > pos ? parseIndex(path, pos, indexEnd, partStart) : null;
+        pos = indexEnd;
+        if (pos < length && path.charAt(pos) == SLICE_SEPARATOR) {
+            int sliceEnd = indexEnd(path, pos + 1);
+            Integer end = sliceEnd > pos + 1 ? parseIndex(path, pos + 1, sliceEnd, partStart) : null;
+            pos = sliceEnd;
+            if ((index == null && end == null) || pos == length || path.charAt(pos) != CLOSE_BRACKET) {
+                throw new DocumentApiException.JsonPathException(path.substring(partStart));
+            }
+            addToken(new SliceToken(index, end));
+        } else {
+            if (index == null || pos == length || path.charAt(pos) != CLOSE_BRACKET) {
+                throw new DocumentApiException.JsonPathException(path.substring(partStart));
+            }
+            addToken(new ListToken(index));
         }
+        return pos + 1;
     }
 
-    private List<Token> processDefaultOrFail(String token) {
-        Optional<Token> tokenOpt;
-        tokenOpt = FunctionToken.match(token);
-        if (tokenOpt.isPresent()) return Collections.singletonList(tokenOpt.get());
-
-        tokenOpt = MapToken.match(token);
-        if (tokenOpt.isPresent()) return Collections.singletonList(tokenOpt.get());
-
-        tokenOpt = FilterToken.match(token);
-        if (tokenOpt.isPresent()) return Collections.singletonList(tokenOpt.get());
-
-        throw new DocumentApiException.JsonPathParseException(token);
+    // returns the position following an optionally negative list index, or the given position if there is none
+    private static int indexEnd(String path, int start) {
+        int pos = start;
+        if (pos < path.length() && path.charAt(pos) == '-') {
+            pos++;
+        }
+        int digitsStart = pos;
+        while (pos < path.length() && Character.isDigit(path.charAt(pos))) {
+            pos++;
+        }
+        return pos == digitsStart ? start : pos;
     }
 
-    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-    private List<Token> tokensListOrFail(Optional<Token> tokenOpt, String token) {
-        if (tokenOpt.isPresent()) {
-            return Collections.singletonList(tokenOpt.get());
-        } else {
-            throw new DocumentApiException.JsonPathException(token);
+    private static int parseIndex(String path, int start, int end, int partStart) {
+        boolean negative = path.charAt(start) == '-';
+        long index = 0;
+        for (int pos = negative ? start + 1 : start; pos < end; pos++) {
+            index = index * 10 + (path.charAt(pos) - '0');
+            if (index > Integer.MAX_VALUE + 1L) {
+                throw new DocumentApiException.JsonPathException(path.substring(partStart));
+            }
+        }
+        if (negative) {
+            index = -index;
         }
+        if (index > Integer.MAX_VALUE) {
+            throw new DocumentApiException.JsonPathException(path.substring(partStart));
+        }
+        return (int) index;
     }
 
-    private List<Token> processPartWithBracketsOrFail(String token) {
-        Optional<Token> tokenOpt = WildcardToken.match(token);
-        if (tokenOpt.isPresent()) return Collections.singletonList(tokenOpt.get());
-
-        tokenOpt = FilterToken.match(token);
-        if (tokenOpt.isPresent()) return Collections.singletonList(tokenOpt.get());
+    // returns the position following the end of a filter expression, or -1 if the filter is not closed
+    private static int filterEnd(String path, int start) {
+        int length = path.length();
+        int depth = 1;
+        for (int pos = start; pos < length; pos++) {
+            char c = path.charAt(pos);
+            if (c == '\'' || c == '"' || (c == '/' && isRegexStart(path, start, pos))) {
+                // skipping quoted strings and regular expressions
+                pos = closingQuote(path, pos, c);
+                if (pos < 0) {
+                    return -1;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return pos + 1 < length && path.charAt(pos + 1) == CLOSE_BRACKET ? pos + 2 : -1;
+            }
+        }
+        return -1;
+    }
 
-        List<Token> tokens = ListToken.parseToList(token);
-        if (!tokens.isEmpty()) return tokens;
+    private static boolean isRegexStart(String path, int start, int pos) {
+        int prev = pos - 1;
+        while (prev > start && path.charAt(prev) == ' ') {
+            prev--;
+        }
+        return prev > start && path.charAt(prev) == '~' && path.charAt(prev - 1) == '=';
+    }
 
-        throw new DocumentApiException.JsonPathException(token);
+    private static int closingQuote(String path, int start, char quote) {
+        for (int pos = start + 1; pos < path.length(); pos++) {
+            char c = path.charAt(pos);
+            if (c == '\\') {
+                pos++;
+            } else if (c == quote) {
+                return pos;
+            }
+        }
+        return -1;
     }
 
     private void validateJsonPathPrefix(String jsonPath) {
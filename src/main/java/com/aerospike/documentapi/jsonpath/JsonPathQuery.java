@@ -1,7 +1,10 @@
 package com.aerospike.documentapi.jsonpath;
 
 import com.aerospike.documentapi.DocumentApiException;
-import com.aerospike.documentapi.util.JsonConverters;
+import com.aerospike.documentapi.util.LruCache;
+import com.aerospike.documentapi.util.Utils;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
 import net.minidev.json.JSONArray;
@@ -9,10 +12,26 @@ import net.minidev.json.JSONArray;
 public class JsonPathQuery {
 
     static final String DOCUMENT_ROOT = "$";
+    // queries are evaluated directly on the maps and lists returned by the Aerospike client
+    private static final Configuration CONFIGURATION = Configuration.builder()
+            .jsonProvider(new DocumentJsonProvider())
+            .build();
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final LruCache<String, JsonPath> CACHE = new LruCache<>(DEFAULT_CACHE_SIZE);
 
     private JsonPathQuery() {
     }
 
+    /**
+     * Get the cache of compiled JSONPath queries, e.g. to check its hit, miss and eviction counters, or to change its
+     * size from {@link #DEFAULT_CACHE_SIZE} with {@link LruCache#setMaxSize(int)}.
+     *
+     * @return the compiled JSONPath queries cache.
+     */
+    public static LruCache<String, JsonPath> getCache() {
+        return CACHE;
+    }
+
     /**
      * Retrieve the objects that match JSON path query.
      *
@@ -22,12 +41,30 @@ public class JsonPathQuery {
      * @throws DocumentApiException if there was validation error.
      */
     public static Object read(JsonPathObject jsonPathObject, Object json) {
+        return readSecondStep(json, DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery());
+    }
+
+    /**
+     * Retrieve the objects that match JSON path query.
+     *
+     * @param preparedPath prepared JSON path.
+     * @param json         an object that represents a list or a map (e.g., Aerospike database result).
+     * @return list of objects matched by the given path.
+     * @throws DocumentApiException if there was validation error.
+     */
+    public static Object read(PreparedDocumentPath preparedPath, Object json) {
+        FilterQuery filterQuery = preparedPath.getFilterQuery();
+        if (filterQuery != null && filterQuery.canRead(json)) {
+            return filterQuery.read(json);
+        }
+        return readSecondStep(json, preparedPath.getSecondStepQuery());
+    }
+
+    private static Object readSecondStep(Object json, String jsonPath) {
         validateNotNull(json);
 
         try {
-            String resultJson = JsonConverters.writeValueAsString(json);
-            String jsonPath = DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery();
-            return JsonPath.read(resultJson, jsonPath);
+            return parse(json).read(compile(jsonPath));
         } catch (Exception e) {
             throw DocumentApiException.toDocumentException(e);
         }
@@ -37,8 +74,7 @@ public class JsonPathQuery {
         validateNotNull(json);
 
         try {
-            String resultJson = JsonConverters.writeValueAsString(json);
-            return JsonPath.read(resultJson, jsonPath);
+            return parse(json).read(compile(jsonPath));
         } catch (PathNotFoundException e) {
             return null;
         } catch (Exception e) {
@@ -56,37 +92,68 @@ public class JsonPathQuery {
      * @throws DocumentApiException if there was an error.
      */
     public static Object putOrSet(JsonPathObject jsonPathObject, Object json, Object value) {
+        return putOrSetSecondStep(Utils.deepCopy(json), DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery(), value);
+    }
+
+    /**
+     * Put a value according to JSON path query and return the updated JSON.
+     *
+     * @param preparedPath prepared JSON path.
+     * @param json         an object that represents a list or a map (e.g., Aerospike database result),
+     *                     modified in place.
+     * @param value        an object to put.
+     * @return updated JSON.
+     * @throws DocumentApiException if there was an error.
+     */
+    public static Object putOrSet(PreparedDocumentPath preparedPath, Object json, Object value) {
+        PutQuery putQuery = preparedPath.getPutQuery();
+        if (putQuery == null) {
+            return putOrSetSecondStep(json, preparedPath.getSecondStepQuery(), value);
+        }
         validateNotNull(json);
 
         try {
-            String resultJson = JsonConverters.writeValueAsString(json);
-            String jsonPath = DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery();
-            JSONArray keys = JsonPath.parse(resultJson).read(jsonPath);
+            // the targets are located once, their containers are modified in place
+            putQuery.put(parse(json).read(compile(putQuery.getParentQuery())), value);
+            return json;
+        } catch (DocumentApiException e) {
+            throw e;
+        } catch (Exception e) {
+            throw DocumentApiException.toDocumentException(e);
+        }
+    }
+
+    private static Object putOrSetSecondStep(Object json, String jsonPath, Object value) {
+        validateNotNull(json);
+
+        try {
+            DocumentContext context = parse(json);
+            JSONArray keys = context.read(compile(jsonPath));
             // if jsonPath exists or if it leads to an array element
             if (!keys.isEmpty() || jsonPath.charAt(jsonPath.length() - 1) == ']') {
-                return setOrAdd(resultJson, jsonPath, value);
+                return setOrAdd(context, jsonPath, value);
             }
             // if jsonPath does not exist in json, and it leads to a map element
-            return put(resultJson, jsonPath, value);
+            return put(context, jsonPath, value);
         } catch (Exception e) {
             throw DocumentApiException.toDocumentException(e);
         }
     }
 
-    private static Object put(String resultJson, String jsonPath, Object value) {
+    private static Object put(DocumentContext context, String jsonPath, Object value) {
         String key = jsonPath.substring(jsonPath.lastIndexOf(".") + 1);
         jsonPath = jsonPath.substring(0, jsonPath.lastIndexOf("."));
-        return JsonPath.parse(resultJson).put(jsonPath, key, value).json();
+        return context.put(compile(jsonPath), key, value).json();
     }
 
-    private static Object setOrAdd(String resultJson, String jsonPath, Object value) {
+    private static Object setOrAdd(DocumentContext context, String jsonPath, Object value) {
         try {
-            return JsonPath.parse(resultJson).set(jsonPath, value).json();
+            return context.set(compile(jsonPath), value).json();
         } catch (PathNotFoundException e) {
             // adding the path because it does not exist
             // add() requires path to an array, so the path to a particular element is omitted
             String arrPath = jsonPath.substring(0, jsonPath.lastIndexOf('['));
-            return JsonPath.parse(resultJson).add(arrPath, value).json();
+            return context.add(compile(arrPath), value).json();
         }
     }
 
@@ -100,12 +167,28 @@ public class JsonPathQuery {
      * @throws DocumentApiException if there was an error.
      */
     public static Object append(JsonPathObject jsonPathObject, Object json, Object value) {
+        return appendSecondStep(Utils.deepCopy(json), DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery(), value);
+    }
+
+    /**
+     * Append a value according to JSON path query and return the updated JSON.
+     *
+     * @param preparedPath prepared JSON path.
+     * @param json         an object that represents a list or a map (e.g., Aerospike database result),
+     *                     modified in place.
+     * @param value        an object to append.
+     * @return updated JSON.
+     * @throws DocumentApiException if there was an error.
+     */
+    public static Object append(PreparedDocumentPath preparedPath, Object json, Object value) {
+        return appendSecondStep(json, preparedPath.getSecondStepQuery(), value);
+    }
+
+    private static Object appendSecondStep(Object json, String jsonPath, Object value) {
         validateNotNull(json);
 
         try {
-            String resultJson = JsonConverters.writeValueAsString(json);
-            String jsonPath = DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery();
-            return JsonPath.parse(resultJson).add(jsonPath, value).json();
+            return parse(json).add(compile(jsonPath), value).json();
         } catch (Exception e) {
             throw DocumentApiException.toDocumentException(e);
         }
@@ -120,17 +203,41 @@ public class JsonPathQuery {
      * @throws DocumentApiException if there was an error.
      */
     public static Object delete(JsonPathObject jsonPathObject, Object json) {
+        return deleteSecondStep(Utils.deepCopy(json), DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery());
+    }
+
+    /**
+     * Delete an element according to JSON path query and return the updated JSON.
+     *
+     * @param preparedPath prepared JSON path.
+     * @param json         an object that represents a list or a map (e.g., Aerospike database result),
+     *                     modified in place.
+     * @return updated JSON.
+     * @throws DocumentApiException if there was an error.
+     */
+    public static Object delete(PreparedDocumentPath preparedPath, Object json) {
+        return deleteSecondStep(json, preparedPath.getSecondStepQuery());
+    }
+
+    private static Object deleteSecondStep(Object json, String jsonPath) {
         validateNotNull(json);
 
         try {
-            String resultJson = JsonConverters.writeValueAsString(json);
-            String jsonPath = DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery();
-            return JsonPath.parse(resultJson).delete(jsonPath).json();
+            return parse(json).delete(compile(jsonPath)).json();
         } catch (Exception e) {
             throw DocumentApiException.toDocumentException(e);
         }
     }
 
+    private static JsonPath compile(String jsonPath) {
+        return CACHE.get(jsonPath, JsonPath::compile);
+    }
+
+    // the given object is modified in place by the put, append and delete queries, callers pass copies if needed
+    private static DocumentContext parse(Object json) {
+        return JsonPath.using(CONFIGURATION).parse(json);
+    }
+
     private static void validateNotNull(Object json) {
         if (json == null) throw new DocumentApiException("Json object for performing path query is null");
     }
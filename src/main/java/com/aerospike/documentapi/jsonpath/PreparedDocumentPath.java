@@ -0,0 +1,581 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.client.Operation;
+import com.aerospike.client.cdt.CTX;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapOrder;
+import com.aerospike.client.cdt.MapPolicy;
+import com.aerospike.client.cdt.MapWriteFlags;
+import com.aerospike.documentapi.DocumentApiException;
+import com.aerospike.documentapi.token.ContextAwareToken;
+import com.aerospike.documentapi.token.ListToken;
+import com.aerospike.documentapi.token.MapToken;
+import com.aerospike.documentapi.token.TerminalToken;
+import com.aerospike.documentapi.token.Token;
+import com.aerospike.documentapi.token.TokenType;
+import com.aerospike.documentapi.util.LruCache;
+import com.aerospike.documentapi.util.Lut;
+import com.aerospike.documentapi.util.Utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.DOC_ROOT;
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.DOT;
+import static com.aerospike.documentapi.util.Utils.createBin;
+import static com.aerospike.documentapi.util.Utils.getPathDetails;
+
+/**
+ * Immutable, thread-safe representation of a parsed JSON path with everything required to build Aerospike operations
+ * computed once: the final token, the contexts (CTXs) leading to it and the second step query.
+ * <p>
+ * Instances are created by {@link JsonPathParser#prepare(String)} and can be reused across keys, bins and threads.
+ * Read and delete operations are built once per bin and reused as well.
+ */
+public final class PreparedDocumentPath {
+
+    public static final int BIN_OPERATIONS_CACHE_SIZE = 64;
+    public static final int EXPANDED_PUT_ATTEMPTS = 2;
+
+    private static final MapPolicy UPDATE_ONLY = new MapPolicy(MapOrder.UNORDERED, MapWriteFlags.UPDATE_ONLY);
+    private static final MapPolicy CREATE_ONLY = new MapPolicy(MapOrder.UNORDERED, MapWriteFlags.CREATE_ONLY);
+
+    private final String jsonPath;
+    private final JsonPathObject jsonPathObject;
+    // contexts leading to the final token
+    private final PathDetails pathDetails;
+    // contexts including the final token
+    private final PathDetails fullPathDetails;
+    private final String secondStepQuery;
+    // the only token requiring a JSONPath query if it can be evaluated by the server
+    private final TerminalToken terminalToken;
+    // the second step query compiled to be read without Jayway JSONPath if it is a supported filter
+    private final FilterQuery filterQuery;
+    // the second step query compiled to be put by modifying the containers of its targets if it ends with a key or index
+    private final PutQuery putQuery;
+    // the map key a path like $.orders[*].status ends with and the contexts between it and the list wildcard,
+    // null if the path cannot be expanded into operations on every list element
+    private final MapToken expansionFinalToken;
+    private final CTX[] expansionCtxArray;
+    private final LruCache<String, BinOperations> binOperations = new LruCache<>(BIN_OPERATIONS_CACHE_SIZE);
+    private final Function<String, BinOperations> binOperationsLoader = BinOperations::new;
+
+    PreparedDocumentPath(String jsonPath, JsonPathObject jsonPathObject) {
+        this.jsonPath = jsonPath;
+        this.jsonPathObject = jsonPathObject.toUnmodifiable();
+        List<ContextAwareToken> tokens = jsonPathObject.getTokensNotRequiringSecondStepQuery();
+        if (tokens.isEmpty()) {
+            this.pathDetails = null;
+            this.fullPathDetails = null;
+        } else {
+            this.pathDetails = getPathDetails(tokens, true);
+            this.fullPathDetails = getPathDetails(tokens, false);
+        }
+        this.secondStepQuery = JsonPathQuery.DOCUMENT_ROOT + jsonPathObject.getJsonPathSecondStepQuery();
+        List<Token> queryTokens = jsonPathObject.getTokensRequiringSecondStepQuery();
+        if (queryTokens.size() == 1 && queryTokens.get(0) instanceof TerminalToken) {
+            this.terminalToken = (TerminalToken) queryTokens.get(0);
+        } else {
+            this.terminalToken = null;
+        }
+        this.filterQuery = FilterQuery.compile(queryTokens);
+        this.putQuery = PutQuery.compile(secondStepQuery, queryTokens);
+        if (queryTokens.size() > 1 && queryTokens.get(0).getType() == TokenType.LIST_WILDCARD
+                && queryTokens.get(queryTokens.size() - 1) instanceof MapToken
+                && queryTokens.stream().skip(1).allMatch(ContextAwareToken.class::isInstance)) {
+            this.expansionFinalToken = (MapToken) queryTokens.get(queryTokens.size() - 1);
+            this.expansionCtxArray = queryTokens.subList(1, queryTokens.size() - 1).stream()
+                    .map(token -> ((ContextAwareToken) token).toAerospikeContext())
+                    .toArray(CTX[]::new);
+        } else {
+            this.expansionFinalToken = null;
+            this.expansionCtxArray = null;
+        }
+    }
+
+    /**
+     * Parse and prepare a JSON path string, the result is cached.
+     *
+     * @param jsonPath the given JSON path string.
+     * @return the prepared path.
+     * @throws DocumentApiException if fails to parse the JSON path string.
+     */
+    public static PreparedDocumentPath of(String jsonPath) {
+        return JsonPathParser.prepare(jsonPath);
+    }
+
+    /**
+     * Get the longest path leading to the data all the given paths read in the first step, e.g. {@code $.store}
+     * for {@code $.store.book[*].price} and {@code $.store.bicycle..color}.
+     *
+     * @param paths the prepared paths, at least one.
+     * @return the common path, applying to the whole bin if the paths have no common tokens.
+     */
+    public static PreparedDocumentPath commonPrefix(Collection<PreparedDocumentPath> paths) {
+        List<ContextAwareToken> prefix = null;
+        for (PreparedDocumentPath path : paths) {
+            List<ContextAwareToken> tokens = path.jsonPathObject.getTokensNotRequiringSecondStepQuery();
+            if (prefix == null) {
+                prefix = tokens;
+            } else {
+                int length = 0;
+                while (length < prefix.size() && length < tokens.size()
+                        && prefix.get(length).equals(tokens.get(length))) {
+                    length++;
+                }
+                prefix = prefix.subList(0, length);
+            }
+        }
+        if (prefix == null) {
+            throw new IllegalArgumentException("No paths given");
+        }
+        JsonPathObject jsonPathObject = new JsonPathObject();
+        StringBuilder prefixPath = new StringBuilder().append(DOC_ROOT);
+        for (ContextAwareToken token : prefix) {
+            jsonPathObject.addPathToken(token);
+            if (token.getType() == TokenType.MAP) {
+                prefixPath.append(DOT);
+            }
+            prefixPath.append(token.getString());
+        }
+        return new PreparedDocumentPath(prefixPath.toString(), jsonPathObject);
+    }
+
+    /**
+     * Check whether the data this path reads in the first step and the data the other path reads in the first step
+     * may overlap, i.e. one may contain the other. List indices are assumed to possibly refer to the same element.
+     *
+     * @param other another prepared path.
+     * @return false if writes of the paths cannot change the same data.
+     */
+    public boolean mayOverlap(PreparedDocumentPath other) {
+        List<ContextAwareToken> tokens = jsonPathObject.getTokensNotRequiringSecondStepQuery();
+        List<ContextAwareToken> otherTokens = other.jsonPathObject.getTokensNotRequiringSecondStepQuery();
+        for (int i = 0; i < tokens.size() && i < otherTokens.size(); i++) {
+            ContextAwareToken token = tokens.get(i);
+            ContextAwareToken otherToken = otherTokens.get(i);
+            if (!token.equals(otherToken) && !(token instanceof ListToken && otherToken instanceof ListToken)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getJsonPath() {
+        return jsonPath;
+    }
+
+    public JsonPathObject getJsonPathObject() {
+        return jsonPathObject;
+    }
+
+    public boolean requiresJsonPathQuery() {
+        return jsonPathObject.requiresJsonPathQuery();
+    }
+
+    /**
+     * Check whether the path can be read by the server in one step although it requires a JSONPath query,
+     * e.g. when it ends with a list slice or a function like length().
+     *
+     * @return true if the path can be read using operations returned by
+     * {@link #getServerSideReadOperations(String, int)}.
+     */
+    public boolean isServerSideGet() {
+        return terminalToken != null && terminalToken.supportsServerSideGet();
+    }
+
+    /**
+     * Check whether the path can be deleted by the server in one step although it requires a JSONPath query,
+     * e.g. when it ends with a list slice.
+     *
+     * @return true if the path can be deleted using operations returned by
+     * {@link #getServerSideDeleteOperations(String, int)}.
+     */
+    public boolean isServerSideDelete() {
+        return terminalToken != null && terminalToken.supportsServerSideDelete();
+    }
+
+    /**
+     * Check whether a write of the path can be performed as 1-step operations on every element of a list,
+     * i.e. the path is like {@code $.orders[*].status} with map keys and array indices following the list wildcard.
+     * <p>
+     * The operations returned by {@link #getExpandedPutOperations(String, int, Object, int)},
+     * {@link #getExpandedAppendOperations(String, int, Object)} and {@link #getExpandedDeleteOperations(String, int)}
+     * fail if an element does not have the structure the path requires, while JSONPath queries skip such elements,
+     * so the query has to be used in this case.
+     *
+     * @return true if the path can be expanded using the list size read by {@link #getListSizeOperation(String)}.
+     */
+    public boolean isExpandable() {
+        return expansionFinalToken != null;
+    }
+
+    FilterQuery getFilterQuery() {
+        return filterQuery;
+    }
+
+    PutQuery getPutQuery() {
+        return putQuery;
+    }
+
+    /**
+     * Get the data this path reads in the first step from the data read by a path it starts with, e.g. the one
+     * returned by {@link #commonPrefix(Collection)}.
+     *
+     * @param prefixPath a path whose tokens not requiring a JSONPath query start the ones of this path.
+     * @param prefixData the data read by the prefix path.
+     * @return the data, null if it is missing.
+     */
+    public Object getFirstStepData(PreparedDocumentPath prefixPath, Object prefixData) {
+        List<ContextAwareToken> tokens = jsonPathObject.getTokensNotRequiringSecondStepQuery();
+        int prefixLength = prefixPath.jsonPathObject.getTokensNotRequiringSecondStepQuery().size();
+        Object data = prefixData;
+        for (ContextAwareToken token : tokens.subList(prefixLength, tokens.size())) {
+            data = getElement(data, token);
+        }
+        return data;
+    }
+
+    private static Object getElement(Object data, ContextAwareToken token) {
+        if (token instanceof MapToken && data instanceof Map) {
+            return ((Map<?, ?>) data).get(((MapToken) token).getKey());
+        }
+        if (token instanceof ListToken && data instanceof List) {
+            List<?> list = (List<?>) data;
+            int index = ((ListToken) token).getListPosition();
+            if (index < 0) {
+                index += list.size();
+            }
+            return index >= 0 && index < list.size() ? list.get(index) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the path has tokens that can be represented as Aerospike contexts, otherwise operations are
+     * applied to the whole bin.
+     *
+     * @return true if there are no such tokens.
+     */
+    public boolean isWholeBin() {
+        return pathDetails == null;
+    }
+
+    /**
+     * Get the last token not requiring a second step query, null if the path applies to the whole bin.
+     *
+     * @return the final token.
+     */
+    public ContextAwareToken getFinalToken() {
+        return pathDetails == null ? null : pathDetails.getFinalToken();
+    }
+
+    /**
+     * Get the contexts leading to the final token, the returned array must not be modified.
+     *
+     * @return an array of contexts, null if the path applies to the whole bin.
+     */
+    public CTX[] getCtxArray() {
+        return pathDetails == null ? null : pathDetails.getCtxArray();
+    }
+
+    /**
+     * Get the contexts leading to and including the final token, the returned array must not be modified.
+     *
+     * @return an array of contexts, null if the path applies to the whole bin.
+     */
+    public CTX[] getFullCtxArray() {
+        return fullPathDetails == null ? null : fullPathDetails.getCtxArray();
+    }
+
+    /**
+     * Get the JSON path query to be applied in the second step, starting with the document root.
+     *
+     * @return the second step JSON path query.
+     */
+    public String getSecondStepQuery() {
+        return secondStepQuery;
+    }
+
+    /**
+     * Get the operations reading the path from the given bin, built once and shared between calls.
+     * <p>
+     * For a path requiring a JSONPath query the operations read the data the query is applied to.
+     * The returned array must not be modified.
+     *
+     * @param binName the bin name.
+     * @param withLut whether to read the record's last update time as well, the corresponding operation comes last.
+     * @return an array of operations.
+     */
+    public Operation[] getReadOperations(String binName, boolean withLut) {
+        BinOperations operations = binOperations.get(binName, binOperationsLoader);
+        return withLut ? operations.readWithLut : operations.read;
+    }
+
+    /**
+     * Get the number of attempts of reading the path from the given bin by the server, each next attempt applies
+     * to another data type.
+     *
+     * @param binName the bin name.
+     * @return the number of attempts, 0 if {@link #isServerSideGet()} is false.
+     */
+    public int getServerSideGetAttempts(String binName) {
+        Operation[][] serverSideRead = binOperations.get(binName, binOperationsLoader).serverSideRead;
+        return serverSideRead == null ? 0 : serverSideRead.length;
+    }
+
+    /**
+     * Get the operations reading the result of a path requiring a JSONPath query from the given bin, built once
+     * and shared between calls. Only valid if {@link #isServerSideGet()} is true.
+     * <p>
+     * The returned array must not be modified.
+     *
+     * @param binName the bin name.
+     * @param attempt the attempt number, starting from 0.
+     * @return an array of operations.
+     */
+    public Operation[] getServerSideReadOperations(String binName, int attempt) {
+        return binOperations.get(binName, binOperationsLoader).serverSideRead[attempt];
+    }
+
+    /**
+     * Convert the result of the operations returned by {@link #getServerSideReadOperations(String, int)}
+     * to the result of the JSONPath query.
+     *
+     * @param result the server result for a bin.
+     * @return the JSONPath query result, empty if it has to be computed by the JSONPath query.
+     */
+    public Optional<Object> toJsonPathResult(Object result) {
+        return terminalToken.toJsonPathResult(result);
+    }
+
+    /**
+     * Get the operations deleting the path from the given bin, built once and shared between calls.
+     * <p>
+     * For a path applying to the whole bin the bin is set to an empty map. The returned array must not be modified.
+     *
+     * @param binName the bin name.
+     * @return an array of operations.
+     */
+    public Operation[] getDeleteOperations(String binName) {
+        return binOperations.get(binName, binOperationsLoader).delete;
+    }
+
+    /**
+     * Get the number of attempts of deleting the path from the given bin by the server, each next attempt applies
+     * to another data type.
+     *
+     * @param binName the bin name.
+     * @return the number of attempts, 0 if {@link #isServerSideDelete()} is false.
+     */
+    public int getServerSideDeleteAttempts(String binName) {
+        Operation[][] serverSideDelete = binOperations.get(binName, binOperationsLoader).serverSideDelete;
+        return serverSideDelete == null ? 0 : serverSideDelete.length;
+    }
+
+    /**
+     * Get the operations deleting the result of a path requiring a JSONPath query from the given bin, built once
+     * and shared between calls. Only valid if {@link #isServerSideDelete()} is true.
+     * <p>
+     * The returned array must not be modified.
+     *
+     * @param binName the bin name.
+     * @param attempt the attempt number, starting from 0.
+     * @return an array of operations.
+     */
+    public Operation[] getServerSideDeleteOperations(String binName, int attempt) {
+        return binOperations.get(binName, binOperationsLoader).serverSideDelete[attempt];
+    }
+
+    /**
+     * Get the operation putting a value to the path of a 1-step JSONPath, the whole bin is replaced if the path
+     * applies to it.
+     *
+     * @param binName the bin name.
+     * @param object  the value to put.
+     * @return the operation.
+     * @throws IllegalArgumentException if the value cannot be written.
+     */
+    public Operation getPutOperation(String binName, Object object) {
+        if (isWholeBin()) {
+            return Operation.put(createBin(binName, object));
+        }
+        return getFinalToken().toAerospikePutOperation(binName, object, getCtxArray());
+    }
+
+    /**
+     * Get the operation appending a value to the list at the path of a 1-step JSONPath.
+     *
+     * @param binName the bin name.
+     * @param object  the value to append.
+     * @return the operation.
+     * @throws DocumentApiException.JsonAppendException if the path applies to the whole bin.
+     */
+    public Operation getAppendOperation(String binName, Object object) {
+        if (isWholeBin()) {
+            throw new DocumentApiException.JsonAppendException(jsonPath);
+        }
+        return getFinalToken().toAerospikeAppendOperation(binName, object, getFullCtxArray());
+    }
+
+    /**
+     * Get the operation incrementing the number at the path of a 1-step JSONPath and returning the new value.
+     * A missing map key is created with the delta as its value.
+     *
+     * @param binName the bin name.
+     * @param delta   the number to add, an integer or a floating point number of the same type as the stored one.
+     * @return the operation.
+     * @throws DocumentApiException.JsonIncrementException if the path applies to the whole bin or requires
+     *                                                     a JSONPath query.
+     * @throws IllegalArgumentException                    if the delta type is not supported.
+     */
+    public Operation getIncrementOperation(String binName, Number delta) {
+        if (isWholeBin() || requiresJsonPathQuery()) {
+            throw new DocumentApiException.JsonIncrementException(jsonPath);
+        }
+        return getFinalToken().toAerospikeIncrementOperation(binName, delta, getCtxArray());
+    }
+
+    /**
+     * Get the operations writing back the result of a second step query: the changes between the data the query was
+     * applied to and the updated data, or a rewrite of the whole updated data if the changes are estimated
+     * to be larger.
+     *
+     * @param binName  the bin name.
+     * @param original the data read by the operations returned by {@link #getReadOperations(String, boolean)}.
+     * @param updated  the same data updated by the second step query.
+     * @return an array of operations, empty if the data has not changed.
+     * @throws IllegalArgumentException if the updated data cannot be written.
+     */
+    public Operation[] getUpdateOperations(String binName, Object original, Object updated) {
+        List<Operation> changes = DocumentDiff.diff(binName, getTerminalCtxArray(), original, updated);
+        if (changes != null) {
+            return changes.toArray(new Operation[0]);
+        }
+        if (isWholeBin()) {
+            return new Operation[]{Operation.put(createBin(binName, updated))};
+        }
+        return new Operation[]{getFinalToken().toAerospikePutOperation(binName, updated, getCtxArray())};
+    }
+
+    /**
+     * Get the operation reading the size of the list the wildcard of an expandable path applies to.
+     *
+     * @param binName the bin name.
+     * @return the operation.
+     */
+    public Operation getListSizeOperation(String binName) {
+        return ListOperation.size(binName, getTerminalCtxArray());
+    }
+
+    /**
+     * Get the operations putting a value to every element of a list, only valid if {@link #isExpandable()} is true.
+     * <p>
+     * Like a JSONPath query, the first attempt updates the map key only if every element has it, the second one
+     * creates it only if no element has it.
+     *
+     * @param binName the bin name.
+     * @param size    the list size.
+     * @param object  the value to put.
+     * @param attempt the attempt number, starting from 0, less than {@link #EXPANDED_PUT_ATTEMPTS}.
+     * @return an array of operations.
+     * @throws IllegalArgumentException if the value cannot be written.
+     */
+    public Operation[] getExpandedPutOperations(String binName, int size, Object object, int attempt) {
+        Utils.validateNotArray(object);
+        MapPolicy mapPolicy = attempt == 0 ? UPDATE_ONLY : CREATE_ONLY;
+        Value key = Value.get(expansionFinalToken.getKey());
+        Value value = Value.get(object);
+        return expand(size, false, contexts -> MapOperation.put(mapPolicy, binName, key, value, contexts));
+    }
+
+    /**
+     * Get the operations appending a value to a list in every element of a list, only valid if
+     * {@link #isExpandable()} is true.
+     *
+     * @param binName the bin name.
+     * @param size    the list size.
+     * @param object  the value to append.
+     * @return an array of operations.
+     * @throws IllegalArgumentException if the value cannot be written.
+     */
+    public Operation[] getExpandedAppendOperations(String binName, int size, Object object) {
+        return expand(size, true,
+                contexts -> expansionFinalToken.toAerospikeAppendOperation(binName, object, contexts));
+    }
+
+    /**
+     * Get the operations deleting a map key from every element of a list, only valid if {@link #isExpandable()}
+     * is true.
+     *
+     * @param binName the bin name.
+     * @param size    the list size.
+     * @return an array of operations.
+     */
+    public Operation[] getExpandedDeleteOperations(String binName, int size) {
+        return expand(size, false, contexts -> expansionFinalToken.toAerospikeDeleteOperation(binName, contexts));
+    }
+
+    // creates an operation for every list element given the contexts leading to it
+    private Operation[] expand(int size, boolean includeFinalToken, Function<CTX[], Operation> operation) {
+        CTX[] listCtxArray = getTerminalCtxArray();
+        int length = listCtxArray.length + 1 + expansionCtxArray.length + (includeFinalToken ? 1 : 0);
+        Operation[] operations = new Operation[size];
+        for (int i = 0; i < size; i++) {
+            CTX[] contexts = Arrays.copyOf(listCtxArray, length);
+            contexts[listCtxArray.length] = CTX.listIndex(i);
+            System.arraycopy(expansionCtxArray, 0, contexts, listCtxArray.length + 1, expansionCtxArray.length);
+            if (includeFinalToken) {
+                contexts[length - 1] = expansionFinalToken.toAerospikeContext();
+            }
+            operations[i] = operation.apply(contexts);
+        }
+        return operations;
+    }
+
+    @Override
+    public String toString() {
+        return jsonPath;
+    }
+
+    // contexts leading to the data a terminal token is applied to
+    private CTX[] getTerminalCtxArray() {
+        return isWholeBin() ? new CTX[0] : getFullCtxArray();
+    }
+
+    private final class BinOperations {
+
+        private final Operation[] read;
+        private final Operation[] readWithLut;
+        private final Operation[][] serverSideRead;
+        private final Operation[] delete;
+        private final Operation[][] serverSideDelete;
+
+        private BinOperations(String binName) {
+            Operation readOperation;
+            Operation deleteOperation;
+            if (isWholeBin()) {
+                readOperation = Operation.get(binName);
+                deleteOperation = MapOperation.clear(binName);
+            } else {
+                readOperation = getFinalToken().toAerospikeGetOperation(binName, getCtxArray());
+                deleteOperation = getFinalToken().toAerospikeDeleteOperation(binName, getCtxArray());
+            }
+            this.read = new Operation[]{readOperation};
+            this.readWithLut = new Operation[]{readOperation, Lut.LUT_READ_OP};
+            this.serverSideRead = isServerSideGet()
+                    ? terminalToken.toAerospikeGetOperations(binName, getTerminalCtxArray())
+                    : null;
+            this.delete = new Operation[]{deleteOperation};
+            this.serverSideDelete = isServerSideDelete()
+                    ? terminalToken.toAerospikeDeleteOperations(binName, getTerminalCtxArray())
+                    : null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.documentapi.DocumentApiException;
+import com.aerospike.documentapi.token.ListToken;
+import com.aerospike.documentapi.token.MapToken;
+import com.aerospike.documentapi.token.Token;
+import com.aerospike.documentapi.token.TokenType;
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.DOT;
+import static com.jayway.jsonpath.spi.json.JsonProvider.UNDEFINED;
+
+/**
+ * Second step PUT query ending with a map key or a list index, e.g. {@code $[*].status}, applied by reading
+ * the maps or lists containing the targets once and modifying them in place.
+ * <p>
+ * The results are the same as the ones of Jayway JSONPath set, put and add: if any target exists, the existing targets
+ * are set, otherwise the key is put into every map or the value is appended to every list.
+ */
+final class PutQuery {
+
+    // the query of the maps and lists containing the targets
+    private final String parentQuery;
+    // the map key or the list index following the parent query
+    private final Object step;
+
+    private PutQuery(String parentQuery, Object step) {
+        this.parentQuery = parentQuery;
+        this.step = step;
+    }
+
+    /**
+     * Compile the tokens of a second step query.
+     *
+     * @param secondStepQuery the second step query.
+     * @param queryTokens     the tokens requiring a JSONPath query.
+     * @return the compiled query, or null if the tokens are not supported.
+     */
+    static PutQuery compile(String secondStepQuery, List<Token> queryTokens) {
+        int size = queryTokens.size();
+        // a deep scan cannot be separated from the following token
+        if (size < 2 || queryTokens.get(size - 2).getType() == TokenType.SCAN) {
+            return null;
+        }
+        Token token = queryTokens.get(size - 1);
+        Object step;
+        String suffix;
+        if (token.getType() == TokenType.MAP) {
+            step = ((MapToken) token).getKey();
+            suffix = DOT + token.getQueryConcatString();
+        } else if (token.getType() == TokenType.LIST) {
+            step = ((ListToken) token).getListPosition();
+            suffix = token.getQueryConcatString();
+        } else {
+            return null;
+        }
+        if (!secondStepQuery.endsWith(suffix)) {
+            return null;
+        }
+        String parentQuery = secondStepQuery.substring(0, secondStepQuery.length() - suffix.length());
+        // the parents of a definite query are not returned as a list
+        return JsonPath.isPathDefinite(parentQuery) ? null : new PutQuery(parentQuery, step);
+    }
+
+    String getParentQuery() {
+        return parentQuery;
+    }
+
+    /**
+     * Put a value to the maps or lists matching the parent query.
+     *
+     * @param parents the values matching the parent query, modified in place.
+     * @param value   the value to put.
+     * @throws DocumentApiException if there are no parents or a value has to be added to a parent of another type.
+     */
+    void put(List<?> parents, Object value) {
+        if (parents.isEmpty()) {
+            throw new DocumentApiException(String.format("No results for path '%s'", parentQuery));
+        }
+        if (step instanceof String) {
+            putMapValues(parents, (String) step, value);
+        } else {
+            putListValues(parents, (Integer) step, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putMapValues(List<?> parents, String key, Object value) {
+        List<Map<Object, Object>> maps = new ArrayList<>(parents.size());
+        boolean hasKey = false;
+        for (Object parent : parents) {
+            if (parent instanceof Map) {
+                maps.add((Map<Object, Object>) parent);
+                hasKey |= DocumentJsonProvider.mapValue((Map<?, ?>) parent, key) != UNDEFINED;
+            }
+        }
+        if (hasKey) {
+            // only the existing keys are set
+            for (Map<Object, Object> map : maps) {
+                if (DocumentJsonProvider.mapValue(map, key) != UNDEFINED) {
+                    DocumentJsonProvider.putMapValue(map, key, value);
+                }
+            }
+            return;
+        }
+        validateParents(parents, maps.size(), "Can only add properties to a map");
+        maps.forEach(map -> map.put(key, value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putListValues(List<?> parents, int index, Object value) {
+        List<List<Object>> lists = new ArrayList<>(parents.size());
+        boolean hasIndex = false;
+        for (Object parent : parents) {
+            if (parent instanceof List) {
+                lists.add((List<Object>) parent);
+                hasIndex |= DocumentJsonProvider.listValue((List<?>) parent, index) != UNDEFINED;
+            }
+        }
+        if (hasIndex) {
+            // only the existing elements are set
+            for (List<Object> list : lists) {
+                if (DocumentJsonProvider.listValue(list, index) != UNDEFINED) {
+                    list.set(index < 0 ? list.size() + index : index, value);
+                }
+            }
+            return;
+        }
+        validateParents(parents, lists.size(), "Can only add to an array");
+        lists.forEach(list -> list.add(value));
+    }
+
+    // nulls are skipped, values of other types fail the query before anything is modified
+    private static void validateParents(List<?> parents, int validCount, String message) {
+        if (parents.stream().filter(Objects::nonNull).count() > validCount) {
+            throw new DocumentApiException(message);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.aerospike.documentapi.policy;
+
+/**
+ * The check that a record has not been updated concurrently between reading it and writing back the results of
+ * a 2-step write operation.
+ */
+public enum ConcurrencyControl {
+
+    /**
+     * The last update time of the record is read using an expression and compared by a filter expression
+     * of the write.
+     */
+    LAST_UPDATE_TIME,
+
+    /**
+     * The generation of the record is compared by the write using
+     * {@link com.aerospike.client.policy.GenerationPolicy#EXPECT_GEN_EQUAL}, requiring no expressions.
+     */
+    GENERATION
+}
@@ -7,6 +7,8 @@ import com.aerospike.client.policy.WritePolicy;
 import lombok.Builder;
 import lombok.Value;
 
+import java.util.concurrent.Executor;
+
 @Value
 @Builder
 public class DocumentPolicy {
@@ -15,4 +17,36 @@ public class DocumentPolicy {
     WritePolicy writePolicy;
     BatchPolicy batchPolicy;
     QueryPolicy queryPolicy;
+    // the retries of 2-step writes conflicting with concurrent updates, null for no retries
+    @Builder.Default
+    RetryPolicy retryPolicy = RetryPolicy.NO_RETRY;
+    @Builder.Default
+    ConcurrencyControl concurrencyControl = ConcurrencyControl.LAST_UPDATE_TIME;
+    // whether writes of paths like $.orders[*].status read the list size instead of the list when possible,
+    // worth it for large lists whose elements all have the structure the path requires
+    @Builder.Default
+    boolean expandListWildcards = false;
+    // the number of locks serializing 2-step writes of the same key within the client, 0 for no locking
+    @Builder.Default
+    int lockStripes = 0;
+    // the number of keys read by each batch of a streamed read
+    @Builder.Default
+    int readBatchSize = 100;
+    // the maximum number of batches of a streamed read performed concurrently
+    @Builder.Default
+    int maxReadBatchesInFlight = 4;
+    // the executor of the async client applying the JSONPath queries and emitting the results of streamed reads
+    // off the event loops, null for the common pool
+    Executor streamExecutor;
+    // the executor of the second step processing of parallel batches, null for a shared pool of the library
+    Executor batchExecutor;
+    // the minimum number of operations of a batch processed in parallel, smaller batches are processed sequentially
+    @Builder.Default
+    int minParallelBatchSize = 64;
+    // whether the async client writes the second step of batch operations as their first step records are read
+    @Builder.Default
+    boolean pipelineBatches = false;
+    // the maximum number of second step batches of a pipelined batch written concurrently
+    @Builder.Default
+    int maxPipelinedWriteBatches = 4;
 }
@@ -0,0 +1,90 @@
+package com.aerospike.documentapi.policy;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retrying of 2-step write operations (PUT, APPEND and DELETE with JSONPath requiring a query) that failed because
+ * the record was updated concurrently between reading it and writing back the query results.
+ * <p>
+ * Each retry reads the record again and re-applies the JSONPath query. Retries are delayed by an exponential backoff
+ * with random jitter and stop when either the maximum number of attempts or the total timeout is reached.
+ */
+@Value
+@Builder
+public class RetryPolicy {
+
+    /**
+     * Policy performing every operation once.
+     */
+    public static final RetryPolicy NO_RETRY = RetryPolicy.builder().maxAttempts(1).build();
+
+    /**
+     * Maximum number of attempts including the first one.
+     * <p>
+     * Default: 3
+     */
+    @Builder.Default
+    int maxAttempts = 3;
+
+    /**
+     * Delay before the first retry in milliseconds, doubled for each further retry.
+     * <p>
+     * Default: 5
+     */
+    @Builder.Default
+    long initialBackoff = 5;
+
+    /**
+     * Maximum delay between retries in milliseconds.
+     * <p>
+     * Default: 500
+     */
+    @Builder.Default
+    long maxBackoff = 500;
+
+    /**
+     * Part of the delay that is randomized, between 0 (no randomization) and 1 (a delay between 0 and the backoff).
+     * <p>
+     * Default: 0.5
+     */
+    @Builder.Default
+    double jitter = 0.5;
+
+    /**
+     * Maximum time in milliseconds from the first attempt after which no further retry is started, 0 for no limit.
+     * <p>
+     * Default: 1000
+     */
+    @Builder.Default
+    long totalTimeout = 1000;
+
+    /**
+     * Compute the delay before a retry.
+     *
+     * @param attempt the number of the failed attempt, starting at 1.
+     * @return the delay in milliseconds.
+     */
+    public long getBackoff(int attempt) {
+        long backoff = initialBackoff << Math.min(attempt - 1, 30);
+        if (backoff > maxBackoff || backoff < 0) {
+            backoff = maxBackoff;
+        }
+        return backoff - (long) (backoff * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Check whether another attempt can be started.
+     *
+     * @param attempt   the number of the failed attempt, starting at 1.
+     * @param startTime the time of the first attempt in milliseconds.
+     * @param backoff   the delay before the next attempt in milliseconds.
+     * @return true if the operation should be retried.
+     */
+    public boolean canRetry(int attempt, long startTime, long backoff) {
+        return attempt < maxAttempts
+                && (totalTimeout <= 0 || System.currentTimeMillis() + backoff - startTime < totalTimeout);
+    }
+}
@@ -0,0 +1,43 @@
+package com.aerospike.documentapi.policy;
+
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Buffering of 1-step write operations by a {@link com.aerospike.documentapi.WriteCombiningBuffer}.
+ * <p>
+ * Operations are flushed when the window since the first buffered operation has passed or when the maximum number
+ * of buffered operations is reached, whichever comes first.
+ */
+@Value
+@Builder
+public class WriteCombiningPolicy {
+
+    /**
+     * Policy of the writes of a single key, the client default if null.
+     */
+    WritePolicy writePolicy;
+
+    /**
+     * Policy of the batch writes of several keys, the client default if null.
+     */
+    BatchPolicy batchPolicy;
+
+    /**
+     * Maximum time in milliseconds an operation is buffered before being written.
+     * <p>
+     * Default: 2
+     */
+    @Builder.Default
+    long window = 2;
+
+    /**
+     * Number of buffered operations that triggers a write before the window has passed.
+     * <p>
+     * Default: 100
+     */
+    @Builder.Default
+    int maxOperations = 100;
+}
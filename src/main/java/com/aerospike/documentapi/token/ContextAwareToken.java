@@ -26,4 +26,7 @@ public abstract class ContextAwareToken extends Token {
     }
 
     public abstract Operation toAerospikeDeleteOperation(String binName, CTX[] contexts);
+
+    public abstract Operation toAerospikeIncrementOperation(String binName, Number delta, CTX[] contexts)
+            throws IllegalArgumentException;
 }
@@ -1,10 +1,31 @@
 package com.aerospike.documentapi.token;
 
+import com.aerospike.client.Operation;
+import com.aerospike.client.cdt.CTX;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.cdt.ListReturnType;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapReturnType;
 import com.aerospike.documentapi.jsonpath.JsonPathParser;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 
-public class FunctionToken extends Token {
+/**
+ * A FunctionToken is a representation of a JSONPath function like length() or max().
+ * <p>
+ * Ending a path, length(), keys(), first(), last(), min() and max() are evaluated by the server using size, index
+ * and rank operations, other functions are evaluated by a JSONPath query.
+ */
+public class FunctionToken extends Token implements TerminalToken {
+
+    private static final String LENGTH = "length()";
+    private static final String KEYS = "keys()";
+    private static final String FIRST = "first()";
+    private static final String LAST = "last()";
+    private static final String MIN = "min()";
+    private static final String MAX = "max()";
 
     public FunctionToken(String strPart) {
         if (JsonPathParser.functionIndication.stream().noneMatch(strPart::contains))
@@ -32,4 +53,88 @@ public class FunctionToken extends Token {
     public boolean requiresJsonQuery() {
         return true;
     }
+
+    @Override
+    public boolean supportsServerSideGet() {
+        switch (getString()) {
+            case LENGTH:
+            case KEYS:
+            case FIRST:
+            case LAST:
+            case MIN:
+            case MAX:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean supportsServerSideDelete() {
+        return false;
+    }
+
+    @Override
+    public Operation[][] toAerospikeGetOperations(String binName, CTX[] contexts) {
+        switch (getString()) {
+            case LENGTH:
+                // the type is not known in advance, lists are tried first
+                return new Operation[][]{
+                        {ListOperation.size(binName, contexts)},
+                        {MapOperation.size(binName, contexts)}
+                };
+            case KEYS:
+                return new Operation[][]{{MapOperation.getByIndexRange(binName, 0, MapReturnType.KEY, contexts)}};
+            case FIRST:
+                return new Operation[][]{{ListOperation.getByIndex(binName, 0, ListReturnType.VALUE, contexts)}};
+            case LAST:
+                return new Operation[][]{{ListOperation.getByIndex(binName, -1, ListReturnType.VALUE, contexts)}};
+            case MIN:
+            case MAX:
+                // both ends are read to check that the values are of the same numeric type,
+                // integers are ranked before doubles
+                return new Operation[][]{{
+                        ListOperation.getByRank(binName, 0, ListReturnType.VALUE, contexts),
+                        ListOperation.getByRank(binName, -1, ListReturnType.VALUE, contexts)
+                }};
+            default:
+                throw new UnsupportedOperationException(
+                        String.format("Unsupported operation: %s cannot be evaluated by the server", getString()));
+        }
+    }
+
+    @Override
+    public Operation[][] toAerospikeDeleteOperations(String binName, CTX[] contexts) {
+        throw new UnsupportedOperationException(
+                String.format("Unsupported operation: %s cannot be deleted", getString()));
+    }
+
+    @Override
+    public Optional<Object> toJsonPathResult(Object result) {
+        if (result == null) {
+            return Optional.empty();
+        }
+        switch (getString()) {
+            case LENGTH:
+                return Optional.of(((Number) result).intValue());
+            case KEYS:
+                return Optional.of(new LinkedHashSet<>((List<?>) result));
+            case FIRST:
+            case LAST:
+                // integers are returned as Long, like by the JSONPath queries on bin values
+                return Optional.of(result);
+            case MIN:
+            case MAX:
+                List<?> ends = (List<?>) result;
+                Object min = ends.get(0);
+                Object max = ends.get(1);
+                if (!(min instanceof Long || min instanceof Double) || min.getClass() != max.getClass()) {
+                    // mixed or not numeric values
+                    return Optional.empty();
+                }
+                return Optional.of(((Number) (getString().equals(MIN) ? min : max)).doubleValue());
+            default:
+                return Optional.empty();
+        }
+    }
 }
@@ -115,6 +115,12 @@ public class ListToken extends ContextAwareToken {
         return ListOperation.removeByIndex(binName, listPosition, ListReturnType.NONE, contexts);
     }
 
+    @Override
+    public Operation toAerospikeIncrementOperation(String binName, Number delta, CTX[] contexts)
+            throws IllegalArgumentException {
+        return ListOperation.increment(binName, listPosition, Utils.toIncrementValue(delta), contexts);
+    }
+
     @Override
     public TokenType getType() {
         return TokenType.LIST;
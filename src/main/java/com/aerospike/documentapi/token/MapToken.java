@@ -94,6 +94,13 @@ public class MapToken extends ContextAwareToken {
         return MapOperation.removeByKey(binName, Value.get(key), MapReturnType.NONE, contexts);
     }
 
+    @Override
+    public Operation toAerospikeIncrementOperation(String binName, Number delta, CTX[] contexts)
+            throws IllegalArgumentException {
+        return MapOperation.increment(new MapPolicy(), binName, Value.get(key), Utils.toIncrementValue(delta),
+                contexts);
+    }
+
     @Override
     public TokenType getType() {
         return TokenType.MAP;
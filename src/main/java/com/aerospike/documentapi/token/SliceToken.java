@@ -0,0 +1,113 @@
+package com.aerospike.documentapi.token;
+
+import com.aerospike.client.Operation;
+import com.aerospike.client.cdt.CTX;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.cdt.ListReturnType;
+
+import java.util.Objects;
+
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.CLOSE_BRACKET;
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.OPEN_BRACKET;
+import static com.aerospike.documentapi.jsonpath.JsonPathParser.SLICE_SEPARATOR;
+
+/**
+ * A SliceToken is a representation of a list range access like [2:10], [-20:] or [:5].
+ * <p>
+ * A range with both bounds of the same sign, or with a single bound except a negative end, maps to an index range
+ * and is read or removed by the server when it ends a path, other ranges are evaluated by a JSONPath query.
+ */
+public class SliceToken extends Token implements TerminalToken {
+
+    private final Integer start;
+    private final Integer end;
+
+    public SliceToken(Integer start, Integer end) {
+        if (start == null && end == null) {
+            throw new IllegalArgumentException();
+        }
+        this.start = start;
+        this.end = end;
+        setString(OPEN_BRACKET + (start == null ? "" : String.valueOf(start)) + SLICE_SEPARATOR
+                + (end == null ? "" : String.valueOf(end)) + CLOSE_BRACKET);
+    }
+
+    public Integer getStart() {
+        return start;
+    }
+
+    public Integer getEnd() {
+        return end;
+    }
+
+    private boolean isIndexRange() {
+        if (start == null) {
+            return end >= 0;
+        }
+        if (end == null) {
+            return true;
+        }
+        return (start >= 0) == (end >= 0) && start < end;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SliceToken)) {
+            return false;
+        }
+        SliceToken that = (SliceToken) obj;
+        return Objects.equals(start, that.start) && Objects.equals(end, that.end);
+    }
+
+    @Override
+    public boolean supportsServerSideGet() {
+        return isIndexRange();
+    }
+
+    @Override
+    public boolean supportsServerSideDelete() {
+        return isIndexRange();
+    }
+
+    @Override
+    public Operation[][] toAerospikeGetOperations(String binName, CTX[] contexts) {
+        Operation operation;
+        if (end == null) {
+            operation = ListOperation.getByIndexRange(binName, start, ListReturnType.VALUE, contexts);
+        } else {
+            int index = start == null ? 0 : start;
+            operation = ListOperation.getByIndexRange(binName, index, end - index, ListReturnType.VALUE, contexts);
+        }
+        return new Operation[][]{{operation}};
+    }
+
+    @Override
+    public Operation[][] toAerospikeDeleteOperations(String binName, CTX[] contexts) {
+        Operation operation;
+        if (end == null) {
+            operation = ListOperation.removeByIndexRange(binName, start, ListReturnType.NONE, contexts);
+        } else {
+            int index = start == null ? 0 : start;
+            operation = ListOperation.removeByIndexRange(binName, index, end - index, ListReturnType.NONE, contexts);
+        }
+        return new Operation[][]{{operation}};
+    }
+
+    @Override
+    public TokenType getType() {
+        return TokenType.LIST_SLICE;
+    }
+
+    @Override
+    public boolean requiresJsonQuery() {
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.aerospike.documentapi.token;
+
+import com.aerospike.client.Operation;
+import com.aerospike.client.cdt.CTX;
+
+import java.util.Optional;
+
+/**
+ * A token requiring a JSONPath query that can still be evaluated by the server when it ends a path
+ * and all preceding tokens can be represented as contexts (CTXs).
+ */
+public interface TerminalToken {
+
+    boolean supportsServerSideGet();
+
+    boolean supportsServerSideDelete();
+
+    /**
+     * Create the operations reading the token's result, one array per attempt. The next attempt is made if the server
+     * reports that the operations of the previous one do not apply to the data, e.g. a list operation applied to a map.
+     *
+     * @param binName  the bin name.
+     * @param contexts the contexts leading to the data the token is applied to.
+     * @return arrays of operations.
+     */
+    Operation[][] toAerospikeGetOperations(String binName, CTX[] contexts);
+
+    /**
+     * Create the operations deleting the token's result, one array per attempt as for
+     * {@link #toAerospikeGetOperations(String, CTX[])}.
+     *
+     * @param binName  the bin name.
+     * @param contexts the contexts leading to the data the token is applied to.
+     * @return arrays of operations.
+     */
+    Operation[][] toAerospikeDeleteOperations(String binName, CTX[] contexts);
+
+    /**
+     * Convert the result of the operations returned by {@link #toAerospikeGetOperations(String, CTX[])}
+     * to the result of the corresponding JSONPath query.
+     *
+     * @param result the server result for a bin.
+     * @return the JSONPath query result, empty if it has to be computed by the JSONPath query.
+     */
+    default Optional<Object> toJsonPathResult(Object result) {
+        return Optional.ofNullable(result);
+    }
+}
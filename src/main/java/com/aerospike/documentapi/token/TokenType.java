@@ -1,5 +1,5 @@
 package com.aerospike.documentapi.token;
 
 public enum TokenType {
-    ROOT, LIST, MAP, SCAN, WILDCARD, LIST_WILDCARD, FILTER, FUNCTION
+    ROOT, LIST, LIST_SLICE, MAP, SCAN, WILDCARD, LIST_WILDCARD, FILTER, FUNCTION
 }
@@ -1,5 +1,11 @@
 package com.aerospike.documentapi.token;
 
+import com.aerospike.client.Operation;
+import com.aerospike.client.cdt.CTX;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapReturnType;
+
 import java.util.Optional;
 
 import static com.aerospike.documentapi.jsonpath.JsonPathParser.CLOSE_BRACKET;
@@ -7,7 +13,13 @@ import static com.aerospike.documentapi.jsonpath.JsonPathParser.OPEN_BRACKET;
 import static com.aerospike.documentapi.jsonpath.JsonPathParser.WILDCARD;
 import static com.aerospike.documentapi.token.TokenType.LIST_WILDCARD;
 
-public class WildcardToken extends Token {
+/**
+ * A WildcardToken is a representation of all elements access, either [*] or .* after a dot.
+ * <p>
+ * Ending a path, it is read or removed by the server using range operations, the list ones are tried first
+ * for [*] and the map ones for .* as both apply to lists and maps.
+ */
+public class WildcardToken extends Token implements TerminalToken {
 
     private static final String WILDCARD_LIST_ELEM = OPEN_BRACKET + String.valueOf(WILDCARD) + CLOSE_BRACKET;
 
@@ -49,4 +61,28 @@ public class WildcardToken extends Token {
     public boolean requiresJsonQuery() {
         return true;
     }
+
+    @Override
+    public boolean supportsServerSideGet() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsServerSideDelete() {
+        return true;
+    }
+
+    @Override
+    public Operation[][] toAerospikeGetOperations(String binName, CTX[] contexts) {
+        Operation[] list = {ListOperation.getRange(binName, 0, contexts)};
+        Operation[] map = {MapOperation.getByIndexRange(binName, 0, MapReturnType.VALUE, contexts)};
+        return isInList ? new Operation[][]{list, map} : new Operation[][]{map, list};
+    }
+
+    @Override
+    public Operation[][] toAerospikeDeleteOperations(String binName, CTX[] contexts) {
+        Operation[] list = {ListOperation.removeRange(binName, 0, contexts)};
+        Operation[] map = {MapOperation.removeByIndexRange(binName, 0, MapReturnType.NONE, contexts)};
+        return isInList ? new Operation[][]{list, map} : new Operation[][]{map, list};
+    }
 }
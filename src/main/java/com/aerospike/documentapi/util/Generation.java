@@ -0,0 +1,22 @@
+package com.aerospike.documentapi.util;
+
+import com.aerospike.client.policy.BatchWritePolicy;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class Generation {
+
+    public static WritePolicy setGenerationPolicy(WritePolicy writePolicy, int generation) {
+        writePolicy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+        writePolicy.generation = generation;
+        return writePolicy;
+    }
+
+    public static BatchWritePolicy setGenerationPolicy(BatchWritePolicy batchWritePolicy, int generation) {
+        batchWritePolicy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+        batchWritePolicy.generation = generation;
+        return batchWritePolicy;
+    }
+}
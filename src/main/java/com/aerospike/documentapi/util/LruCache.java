@@ -0,0 +1,167 @@
+package com.aerospike.documentapi.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded thread-safe cache evicting the least recently used entries.
+ * <p>
+ * Lookups are lock-free, recency is tracked with a logical clock that advances on every miss, so entries accessed
+ * between two misses are considered equally recent, and more recent than the entry inserted by the earlier miss.
+ * Eviction scans the cache and takes a lock, it happens only when a new entry exceeds the maximum size and removes
+ * about a tenth of the oldest entries at once, so that the following misses do not need to evict.
+ *
+ * @param <K> type of keys.
+ * @param <V> type of cached values.
+ */
+public class LruCache<K, V> {
+
+    // fraction of the maximum size evicted by one scan
+    private static final int EVICTION_BATCH_DIVISOR = 10;
+
+    private volatile int maxSize;
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruCache(int maxSize) {
+        this.maxSize = requireValidSize(maxSize);
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Retrieve a cached value, computing and caching it on a miss.
+     * <p>
+     * Exceptions thrown by the loader are propagated and nothing is cached.
+     *
+     * @param key    the key to look up.
+     * @param loader function computing the value when the key is not cached, must not return null.
+     * @return the cached or computed value.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            // accessed after the latest insertion
+            long now = clock.get() + 1;
+            if (entry.lastAccess != now) {
+                entry.lastAccess = now;
+            }
+            return entry.value;
+        }
+
+        misses.increment();
+        V value = loader.apply(key);
+        Entry<V> existing = entries.putIfAbsent(key, new Entry<>(value, clock.addAndGet(2)));
+        if (existing != null) {
+            return existing.value;
+        }
+        if (entries.size() > maxSize) {
+            evict();
+        }
+        return value;
+    }
+
+    private synchronized void evict() {
+        int max = maxSize;
+        if (entries.size() <= max) {
+            // evicted by another thread
+            return;
+        }
+        // access times are snapshot so that concurrent hits do not change the order while sorting
+        List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+        entries.forEach((key, entry) -> candidates.add(new Candidate<>(key, entry)));
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+        int toEvict = candidates.size() - (max - max / EVICTION_BATCH_DIVISOR);
+        for (int i = 0; i < toEvict && i < candidates.size(); i++) {
+            Candidate<K, V> eldest = candidates.get(i);
+            if (entries.remove(eldest.key, eldest.entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Change the maximum number of cached entries, evicting the least recently used ones if the cache is larger.
+     *
+     * @param maxSize the new maximum size, must be positive.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = requireValidSize(maxSize);
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Remove all entries, counters are not reset.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LruCache{size=%d, maxSize=%d, hits=%d, misses=%d, evictions=%d}",
+                size(), maxSize, getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    private static int requireValidSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        return maxSize;
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private volatile long lastAccess;
+
+        private Entry(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Candidate<K, V> {
+
+        private final K key;
+        private final Entry<V> entry;
+        private final long lastAccess;
+
+        private Candidate(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+}
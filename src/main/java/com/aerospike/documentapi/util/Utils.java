@@ -10,7 +10,12 @@ import com.aerospike.documentapi.token.ContextAwareToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.experimental.UtilityClass;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 @UtilityClass
 public class Utils {
@@ -34,16 +39,54 @@ public class Utils {
         }
     }
 
-    public static PathDetails getPathDetails(List<ContextAwareToken> tokens, boolean modify) {
-        // We need to treat the last part of the path differently and without modifying
-        ContextAwareToken finalToken = modify ? JsonPathParser.extractLastPathPartAndModifyList(tokens)
-                : JsonPathParser.extractLastPathPart(tokens);
-        // Then turn the rest into the contexts representation
-        CTX[] ctxArray = JsonPathParser.pathTokensToContextArray(tokens);
+    public static Value toIncrementValue(Number delta) throws IllegalArgumentException {
+        if (delta instanceof Long || delta instanceof Integer || delta instanceof Short || delta instanceof Byte) {
+            return Value.get(delta.longValue());
+        }
+        if (delta instanceof Double || delta instanceof Float) {
+            return Value.get(delta.doubleValue());
+        }
+        throw new IllegalArgumentException("Incrementing by " + (delta == null ? null : delta.getClass().getName()) +
+                " is not supported, consider providing an integer or a floating point number");
+    }
+
+    public static PathDetails getPathDetails(List<ContextAwareToken> tokens, boolean excludeFinalToken) {
+        // We need to treat the last part of the path differently, the tokens list is not modified
+        // as parsed JSON paths can be shared
+        ContextAwareToken finalToken = JsonPathParser.extractLastPathPart(tokens);
+        // Then turn the rest (or all tokens if the final one is not excluded) into the contexts representation
+        CTX[] ctxArray = JsonPathParser.pathTokensToContextArray(
+                excludeFinalToken ? tokens.subList(0, tokens.size() - 1) : tokens);
 
         return new PathDetails(finalToken, ctxArray);
     }
 
+    /**
+     * Copy the maps and lists of a document, other values are shared with the original document.
+     *
+     * @param object the document, e.g. a bin value.
+     * @return the copy.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object deepCopy(Object object) {
+        if (object instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) object;
+            // sorted maps are written as key ordered maps
+            Map<Object, Object> copy = map instanceof SortedMap
+                    ? new TreeMap<>(((SortedMap<Object, Object>) map).comparator())
+                    : new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((key, value) -> copy.put(key, deepCopy(value)));
+            return copy;
+        }
+        if (object instanceof List) {
+            List<Object> list = (List<Object>) object;
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(value -> copy.add(deepCopy(value)));
+            return copy;
+        }
+        return object;
+    }
+
     public static boolean isBlank(String string) {
         return string == null || string.trim().isEmpty();
     }
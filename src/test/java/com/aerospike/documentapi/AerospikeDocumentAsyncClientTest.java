@@ -0,0 +1,427 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.listener.BatchOperateListListener;
+import com.aerospike.client.listener.BatchRecordSequenceListener;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.documentapi.batch.BatchOperation;
+import com.aerospike.documentapi.batch.GetBatchOperation;
+import com.aerospike.documentapi.batch.PutBatchOperation;
+import com.aerospike.documentapi.policy.DocumentPolicy;
+import com.aerospike.documentapi.policy.RetryPolicy;
+import com.aerospike.documentapi.util.Lut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the async client against an in-process fake client answering on a single event loop thread.
+ */
+class AerospikeDocumentAsyncClientTest {
+
+    private static final Key KEY = new Key("test", "test", "asyncClient");
+    private static final String BIN_NAME = "doc";
+
+    private final ScheduledExecutorService eventLoop = Executors.newSingleThreadScheduledExecutor();
+    // the answers of the fake client to operate commands in their order
+    private final Queue<Function<Operation[], Record>> answers = new ConcurrentLinkedQueue<>();
+    private final List<WritePolicy> policies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+    private final AtomicInteger maxBatchesInFlight = new AtomicInteger();
+    // the batch commands of the fake client in the order they are started
+    private final List<String> batchEvents = new CopyOnWriteArrayList<>();
+    // the threads starting the commands of the fake client
+    private final List<Thread> callingThreads = new CopyOnWriteArrayList<>();
+    // the answer of the fake client to the reads of batches, the name of the key by default
+    private volatile Function<Key, Record> batchReadAnswer =
+            key -> record(Collections.singletonMap(BIN_NAME, "name-" + key.userKey.getObject()));
+    private volatile int batchWriteResultCode = ResultCode.OK;
+    private final AerospikeDocumentAsyncClient documentClient = newClient(false);
+
+    @AfterEach
+    void tearDown() {
+        eventLoop.shutdownNow();
+    }
+
+    @Test
+    void getsOneStepPath() throws Exception {
+        answers.add(operations -> record(Collections.singletonMap(BIN_NAME, "Nigel Rees")));
+
+        assertEquals("Nigel Rees", documentClient.get(KEY, BIN_NAME, "$.book[0].author").get(1, TimeUnit.SECONDS));
+        assertNull(policies.get(0).filterExp);
+    }
+
+    @Test
+    void appliesTwoStepQueryToReadData() throws Exception {
+        answers.add(operations -> record(Collections.singletonMap(BIN_NAME, books())));
+
+        Object result = documentClient.get(KEY, BIN_NAME, "$.book[*].price").get(1, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(8.95, 12.99), result);
+    }
+
+    @Test
+    void retriesConflictingTwoStepWrite() throws Exception {
+        answers.add(operations -> recordWithLut(books()));
+        answers.add(operations -> {
+            throw new AerospikeException(ResultCode.FILTERED_OUT);
+        });
+        answers.add(operations -> recordWithLut(books()));
+        answers.add(operations -> record(Collections.emptyMap()));
+
+        documentClient.put(KEY, BIN_NAME, "$.book[*].price", 10).get(1, TimeUnit.SECONDS);
+
+        assertEquals(4, policies.size());
+        // the writes are guarded by the last update time read in the first step
+        assertNotNull(policies.get(1).filterExp);
+        assertNotNull(policies.get(3).filterExp);
+        assertEquals(1, documentClient.getRetryStatistics().getConflicts());
+        assertEquals(1, documentClient.getRetryStatistics().getRetries());
+    }
+
+    @Test
+    void appliesQueriesOffEventLoop() throws Exception {
+        Thread eventLoopThread = eventLoop.submit(Thread::currentThread).get();
+        answers.add(operations -> recordWithLut(books()));
+        answers.add(operations -> record(Collections.emptyMap()));
+        batchReadAnswer = key -> recordWithLut(books());
+
+        documentClient.put(KEY, BIN_NAME, "$.book[*].price", 10).get(1, TimeUnit.SECONDS);
+        documentClient.batchPerform(Collections.singletonList(
+                new PutBatchOperation(KEY, Collections.singletonList(BIN_NAME), "$.book[*].price", 10)))
+                .get(1, TimeUnit.SECONDS);
+
+        // the writes are started by the threads applying the queries
+        assertEquals(4, callingThreads.size());
+        assertFalse(callingThreads.contains(eventLoopThread));
+    }
+
+    @Test
+    void completesExceptionallyOnFailure() {
+        answers.add(operations -> {
+            throw new AerospikeException(ResultCode.BIN_TYPE_ERROR);
+        });
+
+        CompletableFuture<Void> future = documentClient.delete(KEY, BIN_NAME, "$.book[0]");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(DocumentApiException.class, e.getCause());
+    }
+
+    @Test
+    void streamsReadsByBoundedBatches() throws Exception {
+        AtomicLong keysRequested = new AtomicLong();
+        Publisher<Key> keys = subscriber -> subscriber.onSubscribe(new Subscription() {
+            private int next;
+
+            @Override
+            public void request(long n) {
+                keysRequested.addAndGet(n);
+                for (long i = 0; i < n && next < 1000; i++) {
+                    subscriber.onNext(new Key("test", "test", next++));
+                }
+                if (next == 1000) {
+                    subscriber.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        Thread eventLoopThread = eventLoop.submit(Thread::currentThread).get();
+        Map<Object, Object> results = new ConcurrentHashMap<>();
+        AtomicLong maxKeysAhead = new AtomicLong();
+        List<Thread> emittingThreads = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Publisher<DocumentResult> publisher = documentClient.getAll(keys, Collections.singletonList(BIN_NAME), "$.name");
+        publisher.subscribe(new Subscriber<DocumentResult>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(50);
+            }
+
+            @Override
+            public void onNext(DocumentResult result) {
+                emittingThreads.add(Thread.currentThread());
+                maxKeysAhead.accumulateAndGet(keysRequested.get() - results.size(), Math::max);
+                results.put(result.getKey().userKey.getObject(), result.getResults().get(BIN_NAME));
+                if (results.size() % 50 == 0) {
+                    subscription.request(50);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.get(1, TimeUnit.SECONDS);
+
+        assertEquals(1000, results.size());
+        assertEquals("name-42", results.get(42L));
+        assertTrue(maxBatchesInFlight.get() <= 2);
+        // the keys requested are bounded by the results requested and the batches in flight
+        assertTrue(maxKeysAhead.get() <= 300);
+        assertFalse(emittingThreads.contains(eventLoopThread));
+    }
+
+    @Test
+    void rejectsNonPositiveReadBatches() {
+        assertThrows(IllegalArgumentException.class, () -> new AerospikeDocumentAsyncClient(fakeClient(),
+                fakeEventLoops(), DocumentPolicy.builder().readBatchSize(0).build()));
+        assertThrows(IllegalArgumentException.class, () -> new AerospikeDocumentAsyncClient(fakeClient(),
+                fakeEventLoops(), DocumentPolicy.builder().maxReadBatchesInFlight(-1).build()));
+    }
+
+    @Test
+    void rejectsNonPositivePipelinedWriteBatches() {
+        assertThrows(IllegalArgumentException.class, () -> new AerospikeDocumentAsyncClient(fakeClient(),
+                fakeEventLoops(), DocumentPolicy.builder().pipelineBatches(true).maxPipelinedWriteBatches(0).build()));
+    }
+
+    @Test
+    void writesPipelinedSecondStepsWhileReading() throws Exception {
+        AerospikeDocumentAsyncClient pipelinedClient = newClient(true);
+        List<BatchOperation> batchOperations = IntStream.range(0, 10)
+                .mapToObj(i -> new PutBatchOperation(new Key("test", "test", i), Collections.singletonList(BIN_NAME),
+                        "$.book[*].price", 10))
+                .collect(Collectors.toList());
+
+        List<BatchRecord> batchRecords = pipelinedClient.batchPerform(batchOperations).get(1, TimeUnit.SECONDS);
+
+        batchRecords.forEach(batchRecord -> assertEquals(ResultCode.OK, batchRecord.resultCode));
+        // the first writes are started before the read completes, the others are combined
+        assertTrue(batchEvents.indexOf("write") < batchEvents.indexOf("read done"));
+        // the first write is started by the thread applying the query, not by the event loop passing the record
+        assertNotSame(eventLoop.submit(Thread::currentThread).get(), callingThreads.get(1));
+        assertTrue(maxBatchesInFlight.get() <= 2);
+        assertTrue(batchEvents.stream().filter("write"::equals).count() < 10);
+    }
+
+    @Test
+    void failsReadsCombinedWithFailedWrite() throws Exception {
+        batchReadAnswer = key -> recordWithLut(books());
+        List<String> binNames = Collections.singletonList(BIN_NAME);
+
+        List<BatchRecord> batchRecords = documentClient.batchPerform(Arrays.asList(
+                new PutBatchOperation(KEY, binNames, "$.book[*].price", 10),
+                new GetBatchOperation(KEY, binNames, "$.book[*].price"))).get(1, TimeUnit.SECONDS);
+
+        assertEquals(ResultCode.OK, batchRecords.get(1).resultCode);
+        assertEquals(Arrays.asList(10, 10), batchRecords.get(1).record.getValue(BIN_NAME));
+
+        // the read has seen a change that has not been stored
+        batchWriteResultCode = ResultCode.RECORD_TOO_BIG;
+        batchRecords = documentClient.batchPerform(Arrays.asList(
+                new PutBatchOperation(KEY, binNames, "$.book[*].price", 10),
+                new GetBatchOperation(KEY, binNames, "$.book[*].price"))).get(1, TimeUnit.SECONDS);
+
+        assertEquals(ResultCode.RECORD_TOO_BIG, batchRecords.get(0).resultCode);
+        assertEquals(ResultCode.RECORD_TOO_BIG, batchRecords.get(1).resultCode);
+        assertNull(batchRecords.get(1).record);
+    }
+
+    @Test
+    void keepsDataUnchangedByFailedMultiBinWrite() throws Exception {
+        batchReadAnswer = key -> {
+            Record rec = recordWithLut(books());
+            rec.bins.put("other", "not a document");
+            return rec;
+        };
+
+        List<BatchRecord> batchRecords = documentClient.batchPerform(Arrays.asList(
+                new PutBatchOperation(KEY, Arrays.asList(BIN_NAME, "other"), "$.book[*].price", 10),
+                new GetBatchOperation(KEY, Collections.singletonList(BIN_NAME), "$.book[*].price")))
+                .get(1, TimeUnit.SECONDS);
+
+        assertEquals(-2, batchRecords.get(0).resultCode);
+        // the change to the first bin is dropped with the failed operation
+        assertEquals(ResultCode.OK, batchRecords.get(1).resultCode);
+        assertEquals(Arrays.asList(8.95, 12.99), batchRecords.get(1).record.getValue(BIN_NAME));
+        assertFalse(batchEvents.contains("write"));
+    }
+
+    // the data read in the first step of $.book[*] paths
+    private static List<Object> books() {
+        List<Object> books = new ArrayList<>();
+        books.add(book("Nigel Rees", 8.95));
+        books.add(book("Evelyn Waugh", 12.99));
+        return books;
+    }
+
+    private static Map<String, Object> book(String author, double price) {
+        Map<String, Object> book = new HashMap<>();
+        book.put("author", author);
+        book.put("price", price);
+        return book;
+    }
+
+    private static Record record(Map<String, Object> bins) {
+        return new Record(new HashMap<>(bins), 1, 0);
+    }
+
+    private static Record recordWithLut(Object data) {
+        Map<String, Object> bins = new HashMap<>();
+        bins.put(BIN_NAME, data);
+        bins.put(Lut.LUT_BIN, 1_000_000L);
+        return record(bins);
+    }
+
+    private AerospikeDocumentAsyncClient newClient(boolean pipelineBatches) {
+        return new AerospikeDocumentAsyncClient(fakeClient(), fakeEventLoops(), DocumentPolicy.builder()
+                .readPolicy(new Policy())
+                .writePolicy(new WritePolicy())
+                .batchPolicy(new BatchPolicy())
+                .retryPolicy(RetryPolicy.builder().initialBackoff(1).build())
+                .readBatchSize(100)
+                .maxReadBatchesInFlight(2)
+                .pipelineBatches(pipelineBatches)
+                .maxPipelinedWriteBatches(2)
+                .build());
+    }
+
+    // answers operate commands on the event loop thread
+    @SuppressWarnings("unchecked")
+    private IAerospikeClient fakeClient() {
+        return (IAerospikeClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{IAerospikeClient.class}, (proxy, method, args) -> {
+                    callingThreads.add(Thread.currentThread());
+                    if (method.getName().equals("operate") && args.length == 4
+                            && args[1] instanceof BatchOperateListListener) {
+                        operateBatch((BatchOperateListListener) args[1], (List<BatchRecord>) args[3]);
+                        return null;
+                    }
+                    if (method.getName().equals("operate") && args.length == 4
+                            && args[1] instanceof BatchRecordSequenceListener) {
+                        operateBatch((BatchRecordSequenceListener) args[1], (List<BatchRecord>) args[3]);
+                        return null;
+                    }
+                    if (!method.getName().equals("operate") || args.length != 5
+                            || !(args[1] instanceof RecordListener)) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    RecordListener listener = (RecordListener) args[1];
+                    policies.add((WritePolicy) args[2]);
+                    Function<Operation[], Record> answer = answers.remove();
+                    eventLoop.execute(() -> {
+                        Record rec;
+                        try {
+                            rec = answer.apply((Operation[]) args[4]);
+                        } catch (AerospikeException e) {
+                            listener.onFailure(e);
+                            return;
+                        }
+                        listener.onSuccess((Key) args[3], rec);
+                    });
+                    return null;
+                });
+    }
+
+    // reads the first step data of every key, passing each record as it is read, the read completes after
+    // the first write started by the executor processing the records
+    private void operateBatch(BatchRecordSequenceListener listener, List<BatchRecord> batchRecords) {
+        eventLoop.execute(() -> {
+            for (int i = 0; i < batchRecords.size(); i++) {
+                batchRecords.get(i).setRecord(recordWithLut(books()));
+                listener.onRecord(batchRecords.get(i), i);
+            }
+            long deadline = System.currentTimeMillis() + 1000;
+            while (!batchEvents.contains("write") && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            batchEvents.add("read done");
+            listener.onSuccess();
+        });
+    }
+
+    // answers the reads of every key and writes them with the configured result code
+    private void operateBatch(BatchOperateListListener listener, List<BatchRecord> batchRecords) {
+        batchEvents.add(batchRecords.get(0).hasWrite ? "write" : "read");
+        maxBatchesInFlight.accumulateAndGet(batchesInFlight.incrementAndGet(), Math::max);
+        eventLoop.execute(() -> {
+            for (BatchRecord batchRecord : batchRecords) {
+                if (!batchRecord.hasWrite) {
+                    batchRecord.setRecord(batchReadAnswer.apply(batchRecord.key));
+                } else if (batchWriteResultCode != ResultCode.OK) {
+                    batchRecord.setError(batchWriteResultCode, false);
+                } else {
+                    batchRecord.setRecord(record(Collections.emptyMap()));
+                }
+            }
+            batchesInFlight.decrementAndGet();
+            listener.onSuccess(batchRecords, true);
+        });
+    }
+
+    private EventLoops fakeEventLoops() {
+        EventLoop fakeEventLoop = (EventLoop) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EventLoop.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("schedule") || !(args[0] instanceof Runnable)) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    eventLoop.schedule((Runnable) args[0], (Long) args[1], (TimeUnit) args[2]);
+                    return null;
+                });
+        return (EventLoops) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EventLoops.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("next")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return fakeEventLoop;
+                });
+    }
+}
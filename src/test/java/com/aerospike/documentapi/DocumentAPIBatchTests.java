@@ -8,6 +8,7 @@ import com.aerospike.documentapi.batch.BatchOperation;
 import com.aerospike.documentapi.batch.DeleteBatchOperation;
 import com.aerospike.documentapi.batch.GetBatchOperation;
 import com.aerospike.documentapi.batch.PutBatchOperation;
+import com.aerospike.documentapi.policy.DocumentPolicy;
 import com.aerospike.documentapi.util.JsonConverters;
 import com.aerospike.documentapi.util.TestJsonConverters;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -21,6 +22,11 @@ import org.junit.jupiter.api.Test;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -190,6 +196,44 @@ class DocumentAPIBatchTests extends BaseTestConfig {
         }
     }
 
+    /**
+     * Check a batch of 2-step operations with the same key, applied in their order.
+     * <ul>
+     * <li>Putting a value to the price of every book.</li>
+     * <li>Reading the titles of the books with the new price.</li>
+     * <li>Appending to the references of every book.</li>
+     * <li>Deleting the color of the bicycle.</li>
+     * </ul>
+     */
+    @Test
+    void testPositiveBatch2StepSameKeys() {
+        Key key = new Key(AEROSPIKE_NAMESPACE, AEROSPIKE_SET, JSON_EXAMPLE_KEY + "2step");
+        List<String> binNames = Collections.singletonList(DOCUMENT_BIN_NAME);
+        documentClient.put(key, DOCUMENT_BIN_NAME, JsonConverters.convertStringToJsonNode(storeJson));
+
+        List<BatchOperation> batchOpsList = Arrays.asList(
+                new PutBatchOperation(key, binNames, "$.store.book[*].price", 10),
+                new GetBatchOperation(key, binNames, "$.store.book[?(@.price == 10)].title"),
+                new AppendBatchOperation(key, binNames, "$.store.book[*].ref", 99),
+                new DeleteBatchOperation(key, binNames, "$.store.bicycle..color")
+        );
+
+        // the operations are combined into one read and one write
+        List<BatchRecord> batchRecords = documentClient.batchPerform(batchOpsList, false);
+        assertEquals(batchOpsList.size(), batchRecords.size());
+        assertEquals(0, batchRecords.stream().filter(res -> res.resultCode != ResultCode.OK).count());
+
+        List<String> titles = Arrays.asList("Sayings of the Century", "Sword of Honour", "Moby Dick",
+                "The Lord of the Rings");
+        assertTrue(TestJsonConverters.jsonEquals(batchRecords.get(1).record.getValue(DOCUMENT_BIN_NAME), titles));
+        assertTrue(TestJsonConverters.jsonEquals(documentClient.get(key, DOCUMENT_BIN_NAME, "$.store.book[*].price"),
+                Arrays.asList(10, 10, 10, 10)));
+        assertTrue(TestJsonConverters.jsonEquals(documentClient.get(key, DOCUMENT_BIN_NAME, "$.store.book[0].ref"),
+                Arrays.asList(1, 2, 99)));
+        assertTrue(TestJsonConverters.jsonEquals(documentClient.get(key, DOCUMENT_BIN_NAME, "$.store.bicycle"),
+                Collections.singletonMap("price", 19.95)));
+    }
+
     /**
      * Check a batch of single step PUT operations.
      * <ul>
@@ -1119,6 +1163,75 @@ class DocumentAPIBatchTests extends BaseTestConfig {
         }
     }
 
+    /**
+     * Check that the second step of a large parallel batch runs on the given executor and of a small one does not.
+     */
+    @Test
+    void testBatchExecutor() {
+        AtomicInteger tasks = new AtomicInteger();
+        Executor executor = runnable -> {
+            tasks.incrementAndGet();
+            runnable.run();
+        };
+        AerospikeDocumentClient executorClient = new AerospikeDocumentClient(client, DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .batchExecutor(executor)
+                .minParallelBatchSize(10)
+                .build());
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        List<BatchOperation> batchOpsList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Key key = new Key(AEROSPIKE_NAMESPACE, AEROSPIKE_SET, JSON_EXAMPLE_KEY + i);
+            executorClient.put(key, DOCUMENT_BIN_NAME, jsonNode);
+            batchOpsList.add(new GetBatchOperation(key, Collections.singletonList(DOCUMENT_BIN_NAME),
+                    "$.store.book[*].author"));
+        }
+
+        List<BatchRecord> batchRecords = executorClient.batchPerform(batchOpsList, true);
+        assertTrue(tasks.get() > 0);
+        batchRecords.forEach(batchRecord -> {
+            assertEquals(ResultCode.OK, batchRecord.resultCode);
+            assertEquals(4, ((List<?>) batchRecord.record.getValue(DOCUMENT_BIN_NAME)).size());
+        });
+
+        tasks.set(0);
+        executorClient.batchPerform(batchOpsList.subList(0, 5), true);
+        assertEquals(0, tasks.get());
+    }
+
+    /**
+     * Check that a parallel batch performed by the only thread of the batch executor does not wait for itself.
+     */
+    @Test
+    void testBatchFromExecutorThread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AerospikeDocumentClient executorClient = new AerospikeDocumentClient(client, DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .batchExecutor(executor)
+                .minParallelBatchSize(10)
+                .build());
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        List<BatchOperation> batchOpsList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Key key = new Key(AEROSPIKE_NAMESPACE, AEROSPIKE_SET, JSON_EXAMPLE_KEY + i);
+            executorClient.put(key, DOCUMENT_BIN_NAME, jsonNode);
+            batchOpsList.add(new GetBatchOperation(key, Collections.singletonList(DOCUMENT_BIN_NAME),
+                    "$.store.book[*].author"));
+        }
+
+        try {
+            List<BatchRecord> batchRecords = executor.submit(() -> executorClient.batchPerform(batchOpsList, true))
+                    .get(10, TimeUnit.SECONDS);
+            batchRecords.forEach(batchRecord -> assertEquals(ResultCode.OK, batchRecord.resultCode));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private List<BatchOperation> createBatchOperations(
             Object jsonNode,
             List<BatchOperationInput> inputsList,
@@ -1,27 +1,43 @@
 package com.aerospike.documentapi;
 
 import com.aerospike.client.exp.Exp;
+import com.aerospike.client.policy.GenerationPolicy;
 import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.ConcurrencyControl;
+import com.aerospike.documentapi.policy.DocumentPolicy;
+import com.aerospike.documentapi.policy.RetryPolicy;
+import com.aerospike.documentapi.util.Generation;
 import com.aerospike.documentapi.util.JsonConverters;
 import com.aerospike.documentapi.util.Lut;
 import com.aerospike.documentapi.util.TestJsonConverters;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.MockedStatic;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mockStatic;
 
@@ -322,6 +338,112 @@ class DocumentAPITests extends BaseTestConfig {
         }
     }
 
+    @Test
+    void testAtomicPutGeneration() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(events1);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .retryPolicy(RetryPolicy.NO_RETRY)
+                .concurrencyControl(ConcurrencyControl.GENERATION)
+                .build();
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client, documentPolicy);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        final String jsonPath = "$.authentication..id";
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPath, 77);
+        assertTrue(TestJsonConverters.jsonEquals(documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPath),
+                Arrays.asList(77, 77, 77, 77)));
+
+        try (MockedStatic<Generation> classMock = mockStatic(Generation.class)) {
+            classMock.when(() -> Generation.setGenerationPolicy(ArgumentMatchers.<WritePolicy>any(), anyInt()))
+                    .thenAnswer(invocation -> {
+                        WritePolicy writePolicy = invocation.getArgument(0);
+                        writePolicy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+                        writePolicy.generation = 1234;
+                        return writePolicy;
+                    });
+
+            DocumentApiException e = assertThrows(
+                    DocumentApiException.class,
+                    () -> documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPath, 78)
+            );
+            assertTrue(e.getMessage().contains("Generation error"));
+        }
+        assertEquals(1, documentClient.getRetryStatistics().getConflicts());
+    }
+
+    @Test
+    void testAtomicPutRetries() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(events1);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .retryPolicy(RetryPolicy.builder().maxAttempts(3).totalTimeout(0).build())
+                .build();
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client, documentPolicy);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        // the record is updated concurrently on every attempt
+        try (MockedStatic<Lut> classMock = mockStatic(Lut.class)) {
+            classMock.when(() -> Lut.setLutPolicy(ArgumentMatchers.<WritePolicy>any(), anyLong()))
+                    .thenReturn(mockLutWritePolicy());
+
+            DocumentApiException e = assertThrows(
+                    DocumentApiException.class,
+                    () -> documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.authentication..id", 77)
+            );
+            assertTrue(e.getMessage().contains("Transaction filtered out"));
+        }
+
+        RetryStatistics retryStatistics = documentClient.getRetryStatistics();
+        assertEquals(3, retryStatistics.getConflicts());
+        assertEquals(2, retryStatistics.getRetries());
+        assertEquals(1, retryStatistics.getFailures());
+
+        // without a conflict the operation succeeds at the first attempt
+        retryStatistics.reset();
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.authentication..id", 77);
+        assertEquals(0, retryStatistics.getConflicts());
+        assertEquals(0, retryStatistics.getRetries());
+    }
+
+    @Test
+    void testLockedPuts() throws Exception {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(events1);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .retryPolicy(RetryPolicy.NO_RETRY)
+                .lockStripes(16)
+                .build();
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client, documentPolicy);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        // concurrent updates of the same document wait for each other instead of conflicting
+        int threads = 4;
+        int puts = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < puts; j++) {
+                    documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.authentication..id", j);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(0, documentClient.getRetryStatistics().getConflicts());
+        assertEquals(threads * puts, documentClient.getLockStatistics().getAcquisitions());
+    }
+
     /**
      * Check correct response to erroneous access.
      * <ul>
@@ -740,6 +862,175 @@ class DocumentAPITests extends BaseTestConfig {
         assertTrue(((Map<?, ?>) objectFromDB).isEmpty());
     }
 
+    @Test
+    void testPreparedPath() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        PreparedDocumentPath titlePath = documentClient.prepare("$.store.book[1].title");
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, titlePath, "Brideshead Revisited");
+        Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, titlePath);
+        assertEquals("Brideshead Revisited", objectFromDB);
+
+        PreparedDocumentPath refPath = documentClient.prepare("$.store.book[0].ref");
+        documentClient.append(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, refPath, 3);
+        objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, refPath);
+        assertTrue(TestJsonConverters.jsonEquals(objectFromDB, Arrays.asList(1, 2, 3)));
+
+        PreparedDocumentPath authorsPath = documentClient.prepare("$.store.book[*].author");
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, authorsPath, "J.K. Rowling");
+        objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, authorsPath);
+        Object modifiedJson = JsonPath.parse(storeJson).set(authorsPath.getJsonPath(), "J.K. Rowling").json();
+        assertTrue(TestJsonConverters.jsonEquals(objectFromDB, JsonPath.read(modifiedJson, authorsPath.getJsonPath())));
+
+        documentClient.delete(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, titlePath);
+        assertNull(documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, titlePath));
+    }
+
+    @Test
+    void testIncrement() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        assertEquals(10L, documentClient.increment(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.expensive", 0));
+        assertEquals(15L, documentClient.increment(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.expensive", 5));
+        assertEquals(9L, documentClient.increment(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[0].ref[1]", 7));
+        // a missing map key is created
+        assertEquals(1L, documentClient.increment(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.sold", 1));
+        assertEquals(1L, documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.sold"));
+
+        assertThrows(DocumentApiException.class,
+                () -> documentClient.increment(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[*].price", 1));
+        assertThrows(DocumentApiException.class,
+                () -> documentClient.increment(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.color", 1));
+    }
+
+    @Test
+    void testMultiPathGet() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+        List<String> jsonPaths = Arrays.asList("$.expensive", "$.store.bicycle.color", "$.store.book[0].title",
+                "$.store.book[*].author", "$.store.book[?(@.price < 10)].title", "$..price");
+
+        Map<String, Object> results = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPaths);
+
+        assertEquals(jsonPaths, new ArrayList<>(results.keySet()));
+        assertNull(documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME,
+                Arrays.asList("$.store.missing", "$.store.book[*].author")).get("$.store.missing"));
+        for (String jsonPath : jsonPaths) {
+            assertTrue(TestJsonConverters.jsonEquals(
+                    documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPath), results.get(jsonPath)),
+                    jsonPath);
+        }
+    }
+
+    @Test
+    void testMultiPathUpdate() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+        DocumentContext expected = JsonPath.parse(storeJson);
+
+        Map<String, Object> jsonPathObjects = new LinkedHashMap<>();
+        jsonPathObjects.put("$.expensive", 20);
+        jsonPathObjects.put("$.store.bicycle.color", "blue");
+        jsonPathObjects.put("$.store.book[*].price", 9.99);
+        jsonPathObjects.put("$.store.book[?(@.isbn)].category", "classic");
+        documentClient.putAll(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPathObjects);
+        jsonPathObjects.forEach(expected::set);
+
+        documentClient.appendAll(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME,
+                Collections.singletonMap("$.store.book[*].ref", 32));
+        expected.add("$.store.book[*].ref", 32);
+        documentClient.deleteAll(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME,
+                Arrays.asList("$.store.bicycle.price", "$.store.book[*].isbn"));
+        expected.delete("$.store.bicycle.price");
+        expected.delete("$.store.book[*].isbn");
+
+        Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$");
+        assertTrue(TestJsonConverters.jsonEquals(objectFromDB, expected.json()));
+
+        // a 1-step path would be written after the overlapping 2-step path following it
+        Map<String, Object> overlapping = new LinkedHashMap<>();
+        overlapping.put("$.store.book[0].price", 5);
+        overlapping.put("$.store.book[*].price", 6);
+        assertThrows(IllegalArgumentException.class,
+                () -> documentClient.putAll(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, overlapping));
+    }
+
+    @Test
+    void testExpandedListWildcards() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .expandListWildcards(true)
+                .build();
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client, documentPolicy);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+        DocumentContext expected = JsonPath.parse(storeJson);
+
+        // every book has a price, not every one has an isbn
+        PreparedDocumentPath pricePath = documentClient.prepare("$.store.book[*].price");
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, pricePath, 9.99);
+        expected.set(pricePath.getJsonPath(), 9.99);
+        PreparedDocumentPath isbnPath = documentClient.prepare("$.store.book[*].isbn");
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, isbnPath, "none");
+        expected.set(isbnPath.getJsonPath(), "none");
+        PreparedDocumentPath refPath = documentClient.prepare("$.store.book[*].ref");
+        documentClient.append(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, refPath, 32);
+        expected.add(refPath.getJsonPath(), 32);
+        documentClient.delete(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, isbnPath);
+        expected.delete(isbnPath.getJsonPath());
+
+        Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$");
+        assertTrue(TestJsonConverters.jsonEquals(objectFromDB, expected.json()));
+    }
+
+    @Test
+    void testListSlices() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        for (String jsonPath : Arrays.asList("$.store.book[-1].title", "$.store.book[1:3]", "$.store.book[-2:]",
+                "$.store.book[:2]", "$.store.book[-3:-1]", "$.store.book[-3:2]", "$.store.book[1:3].title")) {
+            Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPath);
+            assertTrue(TestJsonConverters.jsonEquals(objectFromDB, JsonPath.read(storeJson, jsonPath)));
+        }
+        assertTrue(documentClient.prepare("$.store.book[-2:]").isServerSideGet());
+        assertFalse(documentClient.prepare("$.store.book[-3:2]").isServerSideGet());
+
+        documentClient.delete(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[-2:]");
+        Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book");
+        assertTrue(TestJsonConverters.jsonEquals(objectFromDB, JsonPath.read(storeJson, "$.store.book[:2]")));
+    }
+
+    @Test
+    void testServerSideFunctions() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        for (String jsonPath : Arrays.asList("$.store.book.length()", "$.store.bicycle.length()",
+                "$.store.book[1].ref.first()", "$.store.book[1].ref.last()",
+                "$.store.book[1].ref.min()", "$.store.book[1].ref.max()", "$.store.book.first()")) {
+            assertTrue(documentClient.prepare(jsonPath).isServerSideGet());
+            Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPath);
+            assertTrue(TestJsonConverters.jsonEquals(objectFromDB, JsonPath.read(storeJson, jsonPath)));
+        }
+        // key order depends on the map type
+        assertEquals((Object) JsonPath.read(storeJson, "$.store.bicycle.keys()"),
+                documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.keys()"));
+
+        // mixed numeric types and keys of a list are computed by the JSONPath query
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[1].ref", Arrays.asList(2, 0.5, 16));
+        assertEquals(0.5, documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[1].ref.min()"));
+        assertEquals(16.0, documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[1].ref.max()"));
+        assertNull(documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book.keys()"));
+    }
+
     private WritePolicy mockLutWritePolicy() {
         WritePolicy writePolicy = new WritePolicy();
         writePolicy.filterExp = Exp.build(
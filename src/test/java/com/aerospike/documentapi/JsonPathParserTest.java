@@ -1,12 +1,30 @@
 package com.aerospike.documentapi;
 
+import com.aerospike.client.Operation;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.CTX;
 import com.aerospike.documentapi.jsonpath.JsonPathObject;
 import com.aerospike.documentapi.jsonpath.JsonPathParser;
+import com.aerospike.documentapi.jsonpath.JsonPathQuery;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
 import com.aerospike.documentapi.token.ListToken;
 import com.aerospike.documentapi.token.MapToken;
+import com.aerospike.documentapi.token.SliceToken;
+import com.aerospike.documentapi.util.Lut;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 class JsonPathParserTest {
@@ -179,4 +197,263 @@ class JsonPathParserTest {
         } catch (DocumentApiException ignored) {
         }
     }
+
+    /**
+     * Verify that cached parsing returns the same unmodifiable object for the same path.
+     */
+    @Test
+    void parsesCachedPath() {
+        String testPath = "$.cached.key[3]";
+        JsonPathObject jsonPathObject = JsonPathParser.parseCached(testPath);
+
+        assertSame(jsonPathObject, JsonPathParser.parseCached(testPath));
+        assertTrue(jsonPathObject.isUnmodifiable());
+        assertEquals(3, jsonPathObject.getTokensNotRequiringSecondStepQuery().size());
+        assertThrows(UnsupportedOperationException.class, () -> jsonPathObject.addToken(new MapToken("key")));
+    }
+
+    /**
+     * Check that cached parsing fails for an invalid path.
+     */
+    @Test
+    void parseCachedFailsBadPath() {
+        assertThrows(DocumentApiException.class, () -> JsonPathParser.parseCached("$.key["));
+    }
+
+    /**
+     * Verify that a prepared path holds the final token and the contexts leading to it.
+     */
+    @Test
+    void preparesPath() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.key[1].key2");
+
+        assertSame(preparedPath, JsonPathParser.prepare("$.key[1].key2"));
+        assertFalse(preparedPath.requiresJsonPathQuery());
+        assertEquals(new MapToken("key2"), preparedPath.getFinalToken());
+        assertEquals(CTX.toBase64(new CTX[]{CTX.mapKey(Value.get("key")), CTX.listIndex(1)}),
+                CTX.toBase64(preparedPath.getCtxArray()));
+        assertEquals(CTX.toBase64(new CTX[]{CTX.mapKey(Value.get("key")), CTX.listIndex(1),
+                        CTX.mapKey(Value.get("key2"))}),
+                CTX.toBase64(preparedPath.getFullCtxArray()));
+        assertEquals("$", preparedPath.getSecondStepQuery());
+    }
+
+    /**
+     * Verify that a prepared two-step path holds the second step query.
+     */
+    @Test
+    void preparesTwoStepPath() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.key[*].key2");
+
+        assertTrue(preparedPath.requiresJsonPathQuery());
+        assertEquals(new MapToken("key"), preparedPath.getFinalToken());
+        assertEquals(0, preparedPath.getCtxArray().length);
+        assertEquals("$[*].key2", preparedPath.getSecondStepQuery());
+    }
+
+    /**
+     * Verify that a prepared path reuses its read and delete operations for the same bin.
+     */
+    @Test
+    void reusesPreparedOperations() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.key[1].key2");
+
+        Operation[] readOperations = preparedPath.getReadOperations("bin", true);
+        assertSame(readOperations, preparedPath.getReadOperations("bin", true));
+        assertEquals(2, readOperations.length);
+        assertSame(readOperations[0], preparedPath.getReadOperations("bin", false)[0]);
+        assertSame(Lut.LUT_READ_OP, readOperations[1]);
+        assertSame(preparedPath.getDeleteOperations("bin"), preparedPath.getDeleteOperations("bin"));
+        assertEquals(Operation.Type.MAP_MODIFY, preparedPath.getDeleteOperations("bin")[0].type);
+
+        Operation wholeBinRead = JsonPathParser.prepare("$").getReadOperations("bin", false)[0];
+        assertEquals(Operation.Type.READ, wholeBinRead.type);
+        assertEquals("bin", wholeBinRead.binName);
+    }
+
+    /**
+     * Verify that negative indices are kept as contexts and a trailing slice is evaluated by the server.
+     */
+    @Test
+    void parsesSlices() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.events[-1].items[-20:]");
+
+        assertEquals(new ListToken(-1), preparedPath.getJsonPathObject().getTokensNotRequiringSecondStepQuery().get(1));
+        assertEquals(new SliceToken(-20, null), preparedPath.getJsonPathObject().getTokensRequiringSecondStepQuery().get(0));
+        assertEquals("$[-20:]", preparedPath.getSecondStepQuery());
+        assertTrue(preparedPath.isServerSideGet());
+        assertTrue(preparedPath.isServerSideDelete());
+        assertEquals(Operation.Type.CDT_READ, preparedPath.getServerSideReadOperations("bin", 0)[0].type);
+        assertEquals(Operation.Type.MAP_READ, preparedPath.getReadOperations("bin", false)[0].type);
+
+        assertTrue(JsonPathParser.prepare("$[2:10]").isServerSideGet());
+        assertTrue(JsonPathParser.prepare("$.events[:5]").isServerSideGet());
+        // mixed signs and open negative ends need the list size
+        assertFalse(JsonPathParser.prepare("$.events[-3:2]").isServerSideGet());
+        assertFalse(JsonPathParser.prepare("$.events[:-2]").isServerSideGet());
+        // not the last token
+        assertFalse(JsonPathParser.prepare("$.events[2:10].name").isServerSideGet());
+        assertThrows(DocumentApiException.class, () -> JsonPathParser.prepare("$.events[:]"));
+        assertThrows(DocumentApiException.class, () -> JsonPathParser.prepare("$.events[1:2:3]"));
+    }
+
+    /**
+     * Verify that a trailing function is evaluated by the server and its result is shaped as by a JSONPath query.
+     */
+    @Test
+    void preparesFunctionPath() {
+        PreparedDocumentPath lengthPath = JsonPathParser.prepare("$.ledger.entries.length()");
+        assertTrue(lengthPath.isServerSideGet());
+        assertFalse(lengthPath.isServerSideDelete());
+        // list size first, then map size
+        assertEquals(2, lengthPath.getServerSideGetAttempts("bin"));
+        assertEquals(3, lengthPath.toJsonPathResult(3L).orElse(null));
+
+        PreparedDocumentPath keysPath = JsonPathParser.prepare("$.ledger.keys()");
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), keysPath.toJsonPathResult(Arrays.asList("a", "b")).orElse(null));
+
+        PreparedDocumentPath minPath = JsonPathParser.prepare("$.ledger.entries.min()");
+        assertEquals(2, minPath.getServerSideReadOperations("bin", 0).length);
+        assertEquals(1.0, minPath.toJsonPathResult(Arrays.asList(1L, 7L)).orElse(null));
+        assertEquals(7.5, JsonPathParser.prepare("$.ledger.entries.max()")
+                .toJsonPathResult(Arrays.asList(0.5, 7.5)).orElse(null));
+        // integers are ranked before doubles, so the ends of a mixed list are not the minimum and maximum
+        assertFalse(minPath.toJsonPathResult(Arrays.asList(1L, 0.5)).isPresent());
+        assertFalse(minPath.toJsonPathResult(Arrays.asList(true, 2L)).isPresent());
+
+        assertEquals(5L, JsonPathParser.prepare("$.ledger.entries.first()").toJsonPathResult(5L).orElse(null));
+        assertFalse(JsonPathParser.prepare("$.ledger.entries.avg()").isServerSideGet());
+        assertFalse(JsonPathParser.prepare("$.ledger[*].length()").isServerSideGet());
+    }
+
+    /**
+     * Verify that a trailing wildcard is read and deleted by the server, trying list or map operations first.
+     */
+    @Test
+    void preparesWildcardPath() {
+        PreparedDocumentPath listWildcardPath = JsonPathParser.prepare("$.store.book[*]");
+        assertTrue(listWildcardPath.isServerSideGet());
+        assertTrue(listWildcardPath.isServerSideDelete());
+        assertEquals(2, listWildcardPath.getServerSideGetAttempts("bin"));
+        assertEquals(Operation.Type.CDT_READ, listWildcardPath.getServerSideReadOperations("bin", 0)[0].type);
+        assertEquals(Operation.Type.MAP_READ, listWildcardPath.getServerSideReadOperations("bin", 1)[0].type);
+        assertEquals(Operation.Type.CDT_MODIFY, listWildcardPath.getServerSideDeleteOperations("bin", 0)[0].type);
+
+        PreparedDocumentPath mapWildcardPath = JsonPathParser.prepare("$.store.book[1].*");
+        assertTrue(mapWildcardPath.isServerSideGet());
+        assertEquals(Operation.Type.MAP_READ, mapWildcardPath.getServerSideReadOperations("bin", 0)[0].type);
+
+        // a trailing wildcard after a key is skipped
+        assertFalse(JsonPathParser.prepare("$.store.*").requiresJsonPathQuery());
+        assertFalse(JsonPathParser.prepare("$.store.book[*].author").isServerSideGet());
+        assertFalse(JsonPathParser.prepare("$..*").isServerSideGet());
+    }
+
+    /**
+     * Verify that dots and brackets inside a filter are kept in the filter.
+     */
+    @Test
+    void parsesFilterWithDots() {
+        JsonPathObject jsonPathObject = new JsonPathParser()
+                .parse("$.store.book[?(@.title == 'a.b)]' && @.author =~ /.*REES/i)].title");
+
+        assertEquals(2, jsonPathObject.getTokensNotRequiringSecondStepQuery().size());
+        assertEquals("[?(@.title == 'a.b)]' && @.author =~ /.*REES/i)].title",
+                jsonPathObject.getJsonPathSecondStepQuery());
+    }
+
+    /**
+     * Check we fail if parsing paths with an unclosed filter, too many dots or an index out of range.
+     */
+    @Test
+    void parseFailsBadPath5() {
+        JsonPathParser parser = new JsonPathParser();
+        assertThrows(DocumentApiException.class, () -> parser.parse("$.key[?(@.a > 1]"));
+        assertThrows(DocumentApiException.class, () -> parser.parse("$.key...a"));
+        assertThrows(DocumentApiException.class, () -> parser.parse("$.key[99999999999]"));
+    }
+
+    /**
+     * Check that unbalanced and stray brackets fail with a parse error, and that extra closing brackets following
+     * a bracket expression are ignored.
+     */
+    @Test
+    void parsesUnbalancedBrackets() {
+        assertThrows(DocumentApiException.JsonPathParseException.class, () -> new JsonPathParser().parse("$.a[1"));
+        assertThrows(DocumentApiException.JsonPathParseException.class, () -> new JsonPathParser().parse("$.a]b"));
+
+        JsonPathObject jsonPathObject = new JsonPathParser().parse("$.a[1]]");
+        assertEquals(Arrays.asList(new MapToken("a"), new ListToken(1)),
+                jsonPathObject.getTokensNotRequiringSecondStepQuery());
+    }
+
+    /**
+     * Verify that a second step query is compiled once and evaluated on the maps and lists of every bin.
+     */
+    @Test
+    void reusesCompiledQueries() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.book[*].title");
+        Map<String, Object> book = new HashMap<>();
+        book.put("title", "Moby Dick");
+        Map<Long, Object> otherBook = new HashMap<>();
+        otherBook.put(1L, "key");
+
+        JsonPathQuery.read(preparedPath, Collections.singletonList(book));
+        long hits = JsonPathQuery.getCache().getHitCount();
+        assertEquals("[\"Moby Dick\"]",
+                JsonPathQuery.read(preparedPath, Arrays.asList(book, otherBook)).toString());
+        assertEquals(hits + 1, JsonPathQuery.getCache().getHitCount());
+        assertEquals("key", JsonPathQuery.read(otherBook, "$.1"));
+    }
+
+    /**
+     * Check that writes of a list wildcard followed by map keys and array indices are expanded to every element.
+     */
+    @Test
+    void expandsListWildcards() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.orders[*].status");
+        assertTrue(preparedPath.isExpandable());
+        assertTrue(JsonPathParser.prepare("$.orders[*].items[0].status").isExpandable());
+        assertFalse(JsonPathParser.prepare("$.orders[*]").isExpandable());
+        assertFalse(JsonPathParser.prepare("$..status").isExpandable());
+        assertFalse(JsonPathParser.prepare("$.orders[?(@.id > 1)].status").isExpandable());
+
+        assertEquals(Operation.Type.CDT_READ, preparedPath.getListSizeOperation("bin").type);
+        Operation[] operations = preparedPath.getExpandedPutOperations("bin", 3, "shipped", 0);
+        assertEquals(3, operations.length);
+        Arrays.stream(operations).forEach(operation -> assertEquals(Operation.Type.MAP_MODIFY, operation.type));
+        assertEquals(3, preparedPath.getExpandedPutOperations("bin", 3, "shipped", 1).length);
+        assertEquals(2, preparedPath.getExpandedDeleteOperations("bin", 2).length);
+        assertEquals(0, preparedPath.getExpandedAppendOperations("bin", 0, 1).length);
+    }
+
+    /**
+     * Check that increments are only built for 1-step paths to a map value or a list element.
+     */
+    @Test
+    void buildsIncrementOperations() {
+        assertEquals(Operation.Type.MAP_MODIFY,
+                JsonPathParser.prepare("$.counters.x").getIncrementOperation("bin", 1).type);
+        assertEquals(Operation.Type.CDT_MODIFY,
+                JsonPathParser.prepare("$.counters[1]").getIncrementOperation("bin", 1.5).type);
+        assertThrows(DocumentApiException.class,
+                () -> JsonPathParser.prepare("$").getIncrementOperation("bin", 1));
+        assertThrows(DocumentApiException.class,
+                () -> JsonPathParser.prepare("$.counters[*]").getIncrementOperation("bin", 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonPathParser.prepare("$.counters.x").getIncrementOperation("bin", BigDecimal.ONE));
+    }
+
+    /**
+     * Check that paths overlap if the data one reads in the first step may contain the data of the other.
+     */
+    @Test
+    void checksOverlappingPaths() {
+        PreparedDocumentPath pricesPath = JsonPathParser.prepare("$.store.book[*].price");
+        assertTrue(JsonPathParser.prepare("$.store.book[0].price").mayOverlap(pricesPath));
+        assertTrue(JsonPathParser.prepare("$.store").mayOverlap(pricesPath));
+        assertTrue(JsonPathParser.prepare("$.store.book[1]").mayOverlap(JsonPathParser.prepare("$.store.book[-1]")));
+        assertFalse(JsonPathParser.prepare("$.store.bicycle.color").mayOverlap(pricesPath));
+        assertFalse(JsonPathParser.prepare("$.expensive").mayOverlap(pricesPath));
+    }
 }
@@ -0,0 +1,76 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.Key;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyLocksTest {
+
+    private static final Key KEY = new Key("test", "set", "key");
+
+    /**
+     * Check that a key is always mapped to the same lock and that the locks of several keys are acquired once.
+     */
+    @Test
+    void locksKeys() {
+        LockStatistics statistics = new LockStatistics();
+        KeyLocks keyLocks = new KeyLocks(4, statistics);
+
+        ReentrantLock lock = keyLocks.lock(KEY);
+        assertTrue(lock.isHeldByCurrentThread());
+        lock.unlock();
+        assertSame(lock, keyLocks.lock(new Key("test", "set", "key")));
+        lock.unlock();
+
+        ReentrantLock[] locks = keyLocks.lock(Arrays.asList(KEY, new Key("test", "set", "other"), KEY));
+        assertTrue(locks.length <= 2);
+        Arrays.stream(locks).forEach(acquired -> assertEquals(1, acquired.getHoldCount()));
+        KeyLocks.unlock(locks);
+        Arrays.stream(locks).forEach(acquired -> assertFalse(acquired.isLocked()));
+        assertEquals(2 + locks.length, statistics.getAcquisitions());
+        assertEquals(0, statistics.getWaits());
+    }
+
+    /**
+     * Check that waiting for a lock held by another thread is counted.
+     */
+    @Test
+    void countsWaits() throws InterruptedException {
+        LockStatistics statistics = new LockStatistics();
+        KeyLocks keyLocks = new KeyLocks(1, statistics);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch waiting = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            ReentrantLock lock = keyLocks.lock(KEY);
+            locked.countDown();
+            try {
+                waiting.await();
+                // unlocking only after the main thread is blocked on the lock
+                while (!lock.hasQueuedThreads()) {
+                    Thread.yield();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        thread.start();
+        locked.await();
+        waiting.countDown();
+        keyLocks.lock(KEY).unlock();
+        thread.join();
+
+        assertEquals(2, statistics.getAcquisitions());
+        assertEquals(1, statistics.getWaits());
+        assertTrue(statistics.getWaitTimeNanos() > 0);
+    }
+}
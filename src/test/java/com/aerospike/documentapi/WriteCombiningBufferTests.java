@@ -0,0 +1,85 @@
+package com.aerospike.documentapi;
+
+import com.aerospike.client.Key;
+import com.aerospike.documentapi.policy.WriteCombiningPolicy;
+import com.aerospike.documentapi.util.JsonConverters;
+import com.aerospike.documentapi.util.TestJsonConverters;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteCombiningBufferTests extends BaseTestConfig {
+
+    private static final Key OTHER_KEY = new Key(AEROSPIKE_NAMESPACE, AEROSPIKE_SET, "otherKey");
+
+    @Test
+    void testCombinedWritesOfOneKey() throws Exception {
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, JsonConverters.convertStringToJsonNode(storeJson));
+        WriteCombiningPolicy policy = WriteCombiningPolicy.builder()
+                .window(1000)
+                .build();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (WriteCombiningBuffer buffer = new WriteCombiningBuffer(client, policy)) {
+            futures.add(buffer.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.color", "blue"));
+            futures.add(buffer.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.price", 9.99));
+            futures.add(buffer.append(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[0].ref", 3));
+            futures.add(buffer.delete(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[0].category"));
+            buffer.flush();
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+        assertEquals("blue", documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.color"));
+        assertEquals(9.99, documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.price"));
+        assertTrue(TestJsonConverters.jsonEquals(
+                documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[0].ref"),
+                Arrays.asList(1, 2, 3)));
+        assertNull(documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[0].category"));
+    }
+
+    @Test
+    void testCombinedWritesOfSeveralKeys() throws Exception {
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, JsonConverters.convertStringToJsonNode(storeJson));
+        documentClient.put(OTHER_KEY, DOCUMENT_BIN_NAME, JsonConverters.convertStringToJsonNode(storeJson));
+        WriteCombiningPolicy policy = WriteCombiningPolicy.builder()
+                .window(1000)
+                .maxOperations(3)
+                .build();
+
+        CompletableFuture<Void> first;
+        CompletableFuture<Void> failing;
+        CompletableFuture<Void> other;
+        try (WriteCombiningBuffer buffer = new WriteCombiningBuffer(client, policy)) {
+            first = buffer.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.color", "blue");
+            // the map does not exist, only this write fails
+            failing = buffer.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.car.color", "green");
+            // the maximum number of operations is reached
+            other = buffer.put(OTHER_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.color", "black");
+            other.get();
+        }
+
+        first.get();
+        ExecutionException e = assertThrows(ExecutionException.class, failing::get);
+        assertTrue(e.getCause() instanceof DocumentApiException);
+        assertEquals("blue", documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.color"));
+        assertEquals("black", documentClient.get(OTHER_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle.color"));
+        client.delete(null, OTHER_KEY);
+    }
+
+    @Test
+    void testNegativeCombinedWrites() {
+        try (WriteCombiningBuffer buffer = new WriteCombiningBuffer(client)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> buffer.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[*].price", 1));
+        }
+    }
+}
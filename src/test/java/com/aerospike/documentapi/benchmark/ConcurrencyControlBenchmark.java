@@ -0,0 +1,94 @@
+package com.aerospike.documentapi.benchmark;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.documentapi.AerospikeDocumentClient;
+import com.aerospike.documentapi.BaseTestConfig;
+import com.aerospike.documentapi.DocumentApiException;
+import com.aerospike.documentapi.RetryStatistics;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.ConcurrencyControl;
+import com.aerospike.documentapi.policy.DocumentPolicy;
+import com.aerospike.documentapi.policy.RetryPolicy;
+import com.aerospike.documentapi.util.DebugUtils;
+import com.aerospike.documentapi.util.JsonConverters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of 2-step PUT operations checking concurrent updates by the last update time or by the generation
+ * of the record, with all threads updating the same document.
+ * <p>
+ * Requires an Aerospike server configured like for the tests, see {@link BaseTestConfig}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ConcurrencyControlBenchmark {
+
+    private static final Key KEY = new Key(BaseTestConfig.AEROSPIKE_NAMESPACE, BaseTestConfig.AEROSPIKE_SET,
+            "concurrencyControlBenchmark");
+
+    @Param({"LAST_UPDATE_TIME", "GENERATION"})
+    public ConcurrencyControl concurrencyControl;
+
+    private IAerospikeClient client;
+    private AerospikeDocumentClient documentClient;
+    private PreparedDocumentPath preparedPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        client = new AerospikeClient(BaseTestConfig.AEROSPIKE_SERVER_IP, BaseTestConfig.AEROSPIKE_SERVER_PORT);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .retryPolicy(RetryPolicy.builder().maxAttempts(10).totalTimeout(0).build())
+                .concurrencyControl(concurrencyControl)
+                .build();
+        documentClient = new AerospikeDocumentClient(client, documentPolicy);
+        documentClient.put(KEY, BaseTestConfig.DOCUMENT_BIN_NAME,
+                JsonConverters.convertStringToJsonNode(DebugUtils.readJSONFromAFile("src/test/resources/store.json")));
+        preparedPath = documentClient.prepare("$.store.book[*].price");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RetryStatistics retryStatistics = documentClient.getRetryStatistics();
+        System.out.printf("%nconflicts: %d, retries: %d, failures: %d%n", retryStatistics.getConflicts(),
+                retryStatistics.getRetries(), retryStatistics.getFailures());
+        client.delete(null, KEY);
+        client.close();
+    }
+
+    @Benchmark
+    public void put() {
+        try {
+            documentClient.put(KEY, BaseTestConfig.DOCUMENT_BIN_NAME, preparedPath,
+                    ThreadLocalRandom.current().nextInt(100));
+        } catch (DocumentApiException e) {
+            // operations failing after the last attempt are counted by the retry statistics
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.aerospike.documentapi.benchmark;
+
+import com.aerospike.documentapi.jsonpath.JsonPathObject;
+import com.aerospike.documentapi.jsonpath.JsonPathParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing cost of JSON paths with and without the parsed paths cache.
+ * <p>
+ * The paths are taken from the tests using store.json, events1.json and tommy-lee-jones.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPathParserBenchmark {
+
+    @Param({
+            "$.store.book[0].title",
+            "$.store.book[?(@.price < 10)].title",
+            "$..book[?(@.author =~ /.*REES/i)]",
+            "$.authentication.login[*].name",
+            "$.authentication..ref[1]",
+            "$.selected_filmography.1997[0]",
+            "$.imdb_rank.rank"
+    })
+    public String jsonPath;
+
+    @Benchmark
+    public JsonPathObject parse() {
+        return new JsonPathParser().parse(jsonPath);
+    }
+
+    @Benchmark
+    public JsonPathObject parseCached() {
+        return JsonPathParser.parseCached(jsonPath);
+    }
+}
@@ -0,0 +1,91 @@
+package com.aerospike.documentapi.benchmark;
+
+import com.aerospike.documentapi.jsonpath.JsonPathParser;
+import com.aerospike.documentapi.jsonpath.JsonPathQuery;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.util.JsonConverters;
+import com.jayway.jsonpath.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the second step of a 2-step JSONPath query on a 1 MB document, evaluating the query on the JSON text
+ * the document is serialized to versus evaluating it directly on the maps and lists returned by the Aerospike client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPathQueryBenchmark {
+
+    private static final int DOCUMENT_SIZE = 1024 * 1024;
+
+    @Param({
+            "$.book[?(@.price < 10)].title",
+            "$.book[*].author"
+    })
+    public String jsonPath;
+
+    private PreparedDocumentPath preparedPath;
+    // first step result, the way the Aerospike client returns it
+    private List<Object> books;
+
+    @Setup
+    public void setUp() {
+        preparedPath = JsonPathParser.prepare(jsonPath);
+        books = new ArrayList<>();
+        int size = 0;
+        for (long i = 0; size < DOCUMENT_SIZE; i++) {
+            Map<String, Object> book = new HashMap<>();
+            book.put("category", i % 2 == 0 ? "reference" : "fiction");
+            book.put("author", "Author " + i);
+            book.put("title", "Title of the book number " + i);
+            book.put("isbn", "0-553-" + i);
+            book.put("price", 5 + (i % 20) + 0.99);
+            book.put("ref", Arrays.asList(i, i + 1, i + 2));
+            books.add(book);
+            size += JsonConverters.writeValueAsString(book).length() + 1;
+        }
+    }
+
+    @Benchmark
+    public Object readSerialized() {
+        return JsonPath.read(JsonConverters.writeValueAsString(books), preparedPath.getSecondStepQuery());
+    }
+
+    @Benchmark
+    public Object read() {
+        return JsonPathQuery.read(preparedPath, books);
+    }
+
+    @Benchmark
+    public Object putSerialized() {
+        return JsonPath.parse(JsonConverters.writeValueAsString(books))
+                .set(preparedPath.getSecondStepQuery(), "value")
+                .json();
+    }
+
+    @Benchmark
+    public Object put() {
+        // setting the same value on every invocation keeps the document unchanged
+        return JsonPathQuery.putOrSet(preparedPath, books, "value");
+    }
+}
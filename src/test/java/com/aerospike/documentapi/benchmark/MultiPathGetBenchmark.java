@@ -0,0 +1,85 @@
+package com.aerospike.documentapi.benchmark;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.documentapi.AerospikeDocumentClient;
+import com.aerospike.documentapi.BaseTestConfig;
+import com.aerospike.documentapi.policy.DocumentPolicy;
+import com.aerospike.documentapi.util.DebugUtils;
+import com.aerospike.documentapi.util.JsonConverters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading several paths of a document, either by one multi-path get or by a get per path.
+ * <p>
+ * Requires an Aerospike server configured like for the tests, see {@link BaseTestConfig}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiPathGetBenchmark {
+
+    private static final Key KEY = new Key(BaseTestConfig.AEROSPIKE_NAMESPACE, BaseTestConfig.AEROSPIKE_SET,
+            "multiPathGetBenchmark");
+    private static final List<String> JSON_PATHS = Arrays.asList("$.expensive", "$.store.bicycle.color",
+            "$.store.bicycle.price", "$.store.book[0].title", "$.store.book[1].author", "$.store.book[*].price",
+            "$.store.book[?(@.price < 10)].title", "$.store.book[*].isbn");
+
+    private IAerospikeClient client;
+    private AerospikeDocumentClient documentClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        client = new AerospikeClient(BaseTestConfig.AEROSPIKE_SERVER_IP, BaseTestConfig.AEROSPIKE_SERVER_PORT);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .build();
+        documentClient = new AerospikeDocumentClient(client, documentPolicy);
+        documentClient.put(KEY, BaseTestConfig.DOCUMENT_BIN_NAME, JsonConverters.convertStringToJsonNode(
+                DebugUtils.readJSONFromAFile("src/test/resources/store.json")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.delete(null, KEY);
+        client.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> multiPathGet() {
+        return documentClient.get(KEY, BaseTestConfig.DOCUMENT_BIN_NAME, JSON_PATHS);
+    }
+
+    @Benchmark
+    public Map<String, Object> sequentialGets() {
+        Map<String, Object> results = new HashMap<>();
+        for (String jsonPath : JSON_PATHS) {
+            results.put(jsonPath, documentClient.get(KEY, BaseTestConfig.DOCUMENT_BIN_NAME, jsonPath));
+        }
+        return results;
+    }
+}
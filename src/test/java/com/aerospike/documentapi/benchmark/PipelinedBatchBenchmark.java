@@ -0,0 +1,115 @@
+package com.aerospike.documentapi.benchmark;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.async.NioEventLoops;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.documentapi.AerospikeDocumentAsyncClient;
+import com.aerospike.documentapi.BaseTestConfig;
+import com.aerospike.documentapi.batch.BatchOperation;
+import com.aerospike.documentapi.batch.PutBatchOperation;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.DocumentPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency of a batch of 2-step PUT operations performed by the async client, either in phases or
+ * pipelined (each second step written as soon as its first step record is read).
+ * <p>
+ * Requires an Aerospike server configured like for the tests, see {@link BaseTestConfig}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelinedBatchBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"true", "false"})
+    public boolean pipelineBatches;
+
+    private EventLoops eventLoops;
+    private IAerospikeClient client;
+    private AerospikeDocumentAsyncClient documentClient;
+    private PreparedDocumentPath preparedPath;
+    private List<Key> keys;
+
+    @Setup
+    public void setUp() {
+        eventLoops = new NioEventLoops(4);
+        ClientPolicy clientPolicy = new ClientPolicy();
+        clientPolicy.eventLoops = eventLoops;
+        client = new AerospikeClient(clientPolicy, BaseTestConfig.AEROSPIKE_SERVER_IP,
+                BaseTestConfig.AEROSPIKE_SERVER_PORT);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .pipelineBatches(pipelineBatches)
+                .build();
+        documentClient = new AerospikeDocumentAsyncClient(client, eventLoops, documentPolicy);
+
+        List<Object> orders = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> order = new HashMap<>();
+            order.put("id", i);
+            order.put("status", "new");
+            orders.add(order);
+        }
+        Map<String, Object> document = new HashMap<>();
+        document.put("orders", orders);
+        keys = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Key key = new Key(BaseTestConfig.AEROSPIKE_NAMESPACE, BaseTestConfig.AEROSPIKE_SET,
+                    "pipelinedBatchBenchmark" + i);
+            client.put(null, key, new Bin(BaseTestConfig.DOCUMENT_BIN_NAME, document));
+            keys.add(key);
+        }
+        preparedPath = documentClient.prepare("$.orders[?(@.id > 4)].status");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keys.forEach(key -> client.delete(null, key));
+        client.close();
+        eventLoops.close();
+    }
+
+    @Benchmark
+    public List<BatchRecord> batchPerform() {
+        String status = "status" + ThreadLocalRandom.current().nextInt(100);
+        List<BatchOperation> batchOperations = new ArrayList<>(BATCH_SIZE);
+        for (Key key : keys) {
+            batchOperations.add(new PutBatchOperation(key, Collections.singletonList(BaseTestConfig.DOCUMENT_BIN_NAME),
+                    preparedPath, status));
+        }
+        return documentClient.batchPerform(batchOperations).join();
+    }
+}
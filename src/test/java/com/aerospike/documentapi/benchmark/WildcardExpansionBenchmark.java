@@ -0,0 +1,96 @@
+package com.aerospike.documentapi.benchmark;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.documentapi.AerospikeDocumentClient;
+import com.aerospike.documentapi.BaseTestConfig;
+import com.aerospike.documentapi.jsonpath.PreparedDocumentPath;
+import com.aerospike.documentapi.policy.DocumentPolicy;
+import com.aerospike.documentapi.util.JsonConverters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of 2-step PUT operations with a list wildcard, performed either as 1-step operations on every list
+ * element after reading the list size or by reading the list and applying the JSONPath query.
+ * <p>
+ * Requires an Aerospike server configured like for the tests, see {@link BaseTestConfig}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WildcardExpansionBenchmark {
+
+    private static final Key KEY = new Key(BaseTestConfig.AEROSPIKE_NAMESPACE, BaseTestConfig.AEROSPIKE_SET,
+            "wildcardExpansionBenchmark");
+
+    @Param({"10", "100", "1000"})
+    public int listSize;
+
+    @Param({"true", "false"})
+    public boolean expandListWildcards;
+
+    private IAerospikeClient client;
+    private AerospikeDocumentClient documentClient;
+    private PreparedDocumentPath preparedPath;
+
+    @Setup
+    public void setUp() {
+        client = new AerospikeClient(BaseTestConfig.AEROSPIKE_SERVER_IP, BaseTestConfig.AEROSPIKE_SERVER_PORT);
+        DocumentPolicy documentPolicy = DocumentPolicy.builder()
+                .readPolicy(client.getReadPolicyDefault())
+                .writePolicy(client.getWritePolicyDefault())
+                .batchPolicy(client.getBatchPolicyDefault())
+                .expandListWildcards(expandListWildcards)
+                .build();
+        documentClient = new AerospikeDocumentClient(client, documentPolicy);
+
+        List<Object> orders = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            Map<String, Object> order = new HashMap<>();
+            order.put("id", i);
+            order.put("status", "new");
+            order.put("description", "order number " + i);
+            orders.add(order);
+        }
+        Map<String, Object> document = new HashMap<>();
+        document.put("orders", orders);
+        documentClient.put(KEY, BaseTestConfig.DOCUMENT_BIN_NAME,
+                JsonConverters.convertStringToJsonNode(JsonConverters.writeValueAsString(document)));
+        preparedPath = documentClient.prepare("$.orders[*].status");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.delete(null, KEY);
+        client.close();
+    }
+
+    @Benchmark
+    public void put() {
+        documentClient.put(KEY, BaseTestConfig.DOCUMENT_BIN_NAME, preparedPath,
+                ThreadLocalRandom.current().nextInt(100));
+    }
+}
@@ -0,0 +1,90 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.client.Operation;
+import com.aerospike.documentapi.util.JsonConverters;
+import com.aerospike.documentapi.util.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DocumentDiffTest {
+
+    private static final String JSON = "{\"book\":[{\"author\":\"Nigel Rees\",\"title\":\"Sayings of the Century\"," +
+            "\"price\":8.95,\"ref\":[1,2]},{\"author\":\"Evelyn Waugh\",\"title\":\"Sword of Honour\"," +
+            "\"price\":12.99,\"ref\":[2,4,16]},{\"author\":\"Herman Melville\",\"title\":\"Moby Dick\"," +
+            "\"price\":8.99,\"ref\":[1,3,5]}],\"bicycle\":{\"color\":\"red\",\"price\":19.95}}";
+
+    /**
+     * Check that only the changed map entries are written back.
+     */
+    @Test
+    void putsChangedEntries() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.store.book[?(@.price < 10)].author");
+
+        Operation[] operations = update(preparedPath, books(),
+                books -> JsonPathQuery.putOrSet(preparedPath, books, "Anonymous"));
+
+        assertEquals(2, operations.length);
+        Arrays.stream(operations).forEach(operation -> assertEquals(Operation.Type.MAP_MODIFY, operation.type));
+    }
+
+    /**
+     * Check that removed list elements are removed by index and appended ones are appended.
+     */
+    @Test
+    void removesAndAppendsElements() {
+        PreparedDocumentPath deletePath = JsonPathParser.prepare("$.store.book[?(@.price < 10)]");
+        Operation[] operations = update(deletePath, books(), books -> JsonPathQuery.delete(deletePath, books));
+
+        assertEquals(2, operations.length);
+        Arrays.stream(operations).forEach(operation -> assertEquals(Operation.Type.CDT_MODIFY, operation.type));
+
+        PreparedDocumentPath appendPath = JsonPathParser.prepare("$.store.book[*].ref");
+        operations = update(appendPath, books(), books -> JsonPathQuery.append(appendPath, books, 32));
+
+        assertEquals(3, operations.length);
+        Arrays.stream(operations).forEach(operation -> assertEquals(Operation.Type.CDT_MODIFY, operation.type));
+    }
+
+    /**
+     * Check that nothing is written back if nothing has changed.
+     */
+    @Test
+    void skipsUnchangedData() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.store.book[?(@.author == 'Nigel Rees')].author");
+
+        assertEquals(0, update(preparedPath, books(),
+                books -> JsonPathQuery.putOrSet(preparedPath, books, "Nigel Rees")).length);
+    }
+
+    /**
+     * Check that the whole data is rewritten if the changes are larger or if its type has changed.
+     */
+    @Test
+    void rewritesData() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.store.book[1].ref[*]");
+        Object refs = ((Map<?, ?>) books().get(1)).get("ref");
+
+        Operation[] operations = update(preparedPath, refs, ref -> JsonPathQuery.putOrSet(preparedPath, ref, 0));
+
+        assertEquals(1, operations.length);
+        assertEquals(Operation.Type.MAP_MODIFY, operations[0].type);
+        assertEquals(1, update(preparedPath, refs, ref -> Collections.singletonMap("ref", ref)).length);
+    }
+
+    private static List<?> books() {
+        return (List<?>) JsonConverters.convertJsonNodeToMap(JsonConverters.convertStringToJsonNode(JSON)).get("book");
+    }
+
+    // the query is applied to a copy of the first step result, like AerospikeDocumentClient does
+    private static Operation[] update(PreparedDocumentPath preparedPath, Object original,
+                                      UnaryOperator<Object> query) {
+        return preparedPath.getUpdateOperations("bin", original, query.apply(Utils.deepCopy(original)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.documentapi.util.JsonConverters;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FilterQueryTest {
+
+    private static final String JSON = "[{\"a\":1,\"s\":\"1\",\"b\":true,\"f\":false,\"n\":null,\"d\":1.5,\"l\":[1,2]," +
+            "\"m\":{\"x\":1},\"big\":12345678901234,\"author\":\"Nigel Rees\"},{\"a\":2,\"s\":\"abc\",\"d\":2}," +
+            "5,\"str\",null,[1]]";
+    private static final List<Object> DOCUMENT =
+            JsonConverters.convertJsonNodeToList(JsonConverters.convertStringToJsonNode(JSON));
+
+    /**
+     * Check that compiled filters return the same results as Jayway JSONPath.
+     */
+    @Test
+    void readsLikeJsonPath() {
+        List<String> filters = Arrays.asList("@.a == 1", "@.a == '1'", "@.s == 1", "@.s == \"1\"", "@.a != 1",
+                "@.x != 1", "@.n == null", "@.x == null", "@.n != null", "@.b == true", "@.b == 'true'",
+                "@.s < 'b'", "@.s > 0", "@.a < '2'", "@.d == 2", "@.d >= 1.5", "@.a<=1", "@.l == 1", "@.m == 1",
+                "@.s =~ /a.*/", "@.a =~ /1/", "@.b =~ /true/", "@.x =~ /.*/", "@.author =~ /.*REES/i",
+                "@.n", "@.x", "@.l", "@.f", "!@.x", "@ == 5", "@ > 4", "@ == 'str'", "@ =~ /st.*/", "@ == null",
+                "@.a == @.d", "@.a < @.x", "10 > @.a", "@.a==1 || @.a == 2 && @.d == 2",
+                "(@.a==1 || @.a == 2) && @.d == 2", "!(@.a == 1)", "@.a > -1", "@.big == 12345678901234",
+                "@.a == 1.0", "@['a'] == 1", "@.l[0] == 1", "@.l[-1] == 2", "@.l[5] == 1", "@.m.x > 0",
+                "@[0] == 1", " @.a == 1 ", "@.a==01", "@.a == 1e0");
+        for (String filter : filters) {
+            assertSameResult("$[?(" + filter + ")]");
+        }
+        for (String jsonPath : Arrays.asList("$[?(@.a)].l[5]", "$[?(@.a)].n", "$[?(@.a)].m.x", "$[?(@.l)].l[-1]",
+                "$[?(@.a)].s")) {
+            assertSameResult(jsonPath);
+        }
+    }
+
+    /**
+     * Check that a filter applied to a map is applied to the map itself.
+     */
+    @Test
+    void readsMap() {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare("$.m[?(@.x == 1)]");
+        assertNotNull(preparedPath.getFilterQuery());
+        assertEquals("[{\"x\":1}]", JsonConverters.writeValueAsString(
+                JsonPathQuery.read(preparedPath, JsonConverters.convertJsonNodeToMap(
+                        JsonConverters.convertStringToJsonNode("{\"x\":1}")))));
+    }
+
+    /**
+     * Check that filters using unsupported syntax are left to Jayway JSONPath.
+     */
+    @Test
+    void skipsUnsupportedFilters() {
+        for (String filter : Arrays.asList("@.a in [1]", "@.l.length() == 2", "$.a == 1", "@.s == 'it\\'s'",
+                "@.a === 1", "@..a == 1", "@.l == [1,2]", "@.a == +1", "@.s =~ /a/z", "@", "@ ", "!@", "1", "@.a == 1 &&")) {
+            assertNull(FilterParser.parse("[?(" + filter + ")]"), filter);
+        }
+        assertNull(JsonPathParser.prepare("$..book[?(@.price < 10)]").getFilterQuery());
+        assertNull(JsonPathParser.prepare("$.book[?(@.price < 10)][*]").getFilterQuery());
+        assertNotNull(JsonPathParser.prepare("$.book[?(@.price < 10)].ref[0]").getFilterQuery());
+    }
+
+    private static void assertSameResult(String jsonPath) {
+        PreparedDocumentPath preparedPath = JsonPathParser.prepare(jsonPath);
+        assertNotNull(preparedPath.getFilterQuery(), jsonPath);
+        assertEquals(JsonConverters.writeValueAsString(JsonPath.read(JSON, jsonPath)),
+                JsonConverters.writeValueAsString(JsonPathQuery.read(preparedPath, DOCUMENT)), jsonPath);
+    }
+}
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -92,6 +93,29 @@ class JsonPathWildcardTests extends BaseTestConfig {
         assertTrue(TestJsonConverters.jsonEquals(objectFromDB, expectedObject));
     }
 
+    @Test
+    void testTrailingWildcard() {
+        JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
+        AerospikeDocumentClient documentClient = new AerospikeDocumentClient(client);
+        documentClient.put(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonNode);
+
+        // All books, all bicycle properties and all refs of a book, read by the server
+        for (String jsonPath : Arrays.asList("$.store.book[*]", "$.store.bicycle[*]", "$.store.book[1].*")) {
+            assertTrue(documentClient.prepare(jsonPath).isServerSideGet());
+            Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, jsonPath);
+            Object expectedObject = JsonPath.read(storeJson, jsonPath);
+            assertTrue(TestJsonConverters.jsonEquals(objectFromDB, expectedObject));
+        }
+
+        // Delete all books and all bicycle properties
+        documentClient.delete(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.book[*]");
+        documentClient.delete(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store.bicycle[*]");
+        Object objectFromDB = documentClient.get(TEST_AEROSPIKE_KEY, DOCUMENT_BIN_NAME, "$.store");
+        Object modifiedJson = JsonPath.parse(storeJson).delete("$.store.book[*]").delete("$.store.bicycle[*]").json();
+        Object expectedObject = JsonPath.read(modifiedJson, "$.store");
+        assertTrue(TestJsonConverters.jsonEquals(objectFromDB, expectedObject));
+    }
+
     @Test
     void deleteRootElementJSONPathQuery() {
         JsonNode jsonNode = JsonConverters.convertStringToJsonNode(storeJson);
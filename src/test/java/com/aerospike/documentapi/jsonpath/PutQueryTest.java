@@ -0,0 +1,99 @@
+package com.aerospike.documentapi.jsonpath;
+
+import com.aerospike.documentapi.DocumentApiException;
+import com.aerospike.documentapi.util.JsonConverters;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PutQueryTest {
+
+    private static final String JSON = "[{\"a\":1,\"l\":[1,2],\"m\":{\"x\":1}},{\"a\":2,\"l\":[3]},{\"b\":3,\"l\":[]}," +
+            "null]";
+
+    /**
+     * Check that compiled queries put the same values as Jayway JSONPath.
+     */
+    @Test
+    void putsLikeJsonPath() {
+        for (String jsonPath : Arrays.asList("$[*].a", "$[*].l[0]", "$[*].l[1]", "$[?(@.a > 1)].a", "$[0:2].l[0]",
+                "$[?(@.m)].m.x")) {
+            assertNotNull(prepare(jsonPath).getPutQuery(), jsonPath);
+            assertEquals(JsonConverters.writeValueAsString(JsonPath.parse(document()).set(jsonPath, 7).json()),
+                    put(jsonPath), jsonPath);
+        }
+    }
+
+    /**
+     * Check that a missing key is put into every map and a missing element is appended to every list.
+     */
+    @Test
+    void addsMissingTargets() {
+        assertEquals("[{\"a\":1,\"l\":[1,2],\"m\":{\"x\":1},\"c\":7},{\"a\":2,\"l\":[3],\"c\":7}," +
+                "{\"b\":3,\"l\":[],\"c\":7},null]", put("$[*].c"));
+        assertEquals("[{\"a\":1,\"l\":[1,2,7],\"m\":{\"x\":1}},{\"a\":2,\"l\":[3,7]},{\"b\":3,\"l\":[7]},null]",
+                put("$[*].l[2]"));
+    }
+
+    /**
+     * Check that the value is not put if the containers cannot hold it.
+     */
+    @Test
+    void failsForOtherContainers() {
+        List<Object> document = document();
+        PreparedDocumentPath preparedPath = prepare("$[*].l.c");
+
+        assertThrows(DocumentApiException.class, () -> JsonPathQuery.putOrSet(preparedPath, document, 7));
+        assertEquals(JSON, JsonConverters.writeValueAsString(document));
+        assertThrows(DocumentApiException.class,
+                () -> JsonPathQuery.putOrSet(prepare("$[*].x.c"), document(), 7));
+    }
+
+    /**
+     * Check that queries not ending with a map key or a list index are left to Jayway JSONPath.
+     */
+    @Test
+    void skipsUnsupportedQueries() {
+        assertNull(prepare("$[*]").getPutQuery());
+        assertNull(prepare("$..a").getPutQuery());
+        assertNull(prepare("$[*].l[*]").getPutQuery());
+    }
+
+    /**
+     * Check that the queries of a parsed JSON path return an updated copy and leave the given object unchanged.
+     */
+    @Test
+    void copiesForParsedPath() {
+        List<Object> document = document();
+        JsonPathObject jsonPathObject = prepare("$[?(@.a == 1)].a").getJsonPathObject();
+
+        assertEquals("[{\"a\":7,\"l\":[1,2],\"m\":{\"x\":1}},{\"a\":2,\"l\":[3]},{\"b\":3,\"l\":[]},null]",
+                JsonConverters.writeValueAsString(JsonPathQuery.putOrSet(jsonPathObject, document, 7)));
+        JsonPathQuery.append(prepare("$[*].l").getJsonPathObject(), document, 7);
+        JsonPathQuery.delete(jsonPathObject, document);
+        assertEquals(JSON, JsonConverters.writeValueAsString(document));
+    }
+
+    private static String put(String jsonPath) {
+        List<Object> document = document();
+        assertSame(document, JsonPathQuery.putOrSet(prepare(jsonPath), document, 7));
+        return JsonConverters.writeValueAsString(document);
+    }
+
+    // the query is applied to the first step result of a path starting with a map key
+    private static PreparedDocumentPath prepare(String jsonPath) {
+        return JsonPathParser.prepare("$.doc" + jsonPath.substring(1));
+    }
+
+    private static List<Object> document() {
+        return JsonConverters.convertJsonNodeToList(JsonConverters.convertStringToJsonNode(JSON));
+    }
+}
@@ -0,0 +1,114 @@
+package com.aerospike.documentapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LruCacheTest {
+
+    /**
+     * Check that a cached value is computed once and the counters are updated.
+     */
+    @Test
+    void computesValueOnce() {
+        LruCache<String, Integer> cache = new LruCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(3, cache.get("abc", key -> {
+                loads.incrementAndGet();
+                return key.length();
+            }));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(4, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Check that the least recently used entry is evicted when the cache is full.
+     */
+    @Test
+    void evictsLeastRecentlyUsed() {
+        LruCache<String, String> cache = new LruCache<>(2);
+
+        cache.get("a", key -> key);
+        cache.get("b", key -> key);
+        cache.get("a", key -> key);
+        cache.get("c", key -> key);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        // "a" is still cached
+        cache.get("a", key -> key);
+        assertEquals(2, cache.getHitCount());
+        // "b" has been evicted
+        cache.get("b", key -> key);
+        assertEquals(4, cache.getMissCount());
+    }
+
+    /**
+     * Check that a failure to compute a value is propagated and not cached.
+     */
+    @Test
+    void doesNotCacheFailures() {
+        LruCache<String, String> cache = new LruCache<>(2);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("a", key -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, cache.size());
+        assertEquals("a", cache.get("a", key -> key));
+    }
+
+    /**
+     * Check that a full cache evicts a batch of the least recently used entries at once.
+     */
+    @Test
+    void evictsBatchOfLeastRecentlyUsed() {
+        LruCache<Integer, Integer> cache = new LruCache<>(100);
+        for (int i = 0; i <= 100; i++) {
+            cache.get(i, key -> key);
+        }
+
+        assertEquals(90, cache.size());
+        assertEquals(11, cache.getEvictionCount());
+        // the most recent entries are still cached
+        for (int i = 11; i <= 100; i++) {
+            cache.get(i, key -> key);
+        }
+        assertEquals(90, cache.getHitCount());
+        // the next misses do not evict
+        for (int i = 101; i < 111; i++) {
+            cache.get(i, key -> key);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(11, cache.getEvictionCount());
+    }
+
+    /**
+     * Check that shrinking the cache evicts the least recently used entries.
+     */
+    @Test
+    void resizes() {
+        LruCache<String, String> cache = new LruCache<>(3);
+        cache.get("a", key -> key);
+        cache.get("b", key -> key);
+        cache.get("c", key -> key);
+        cache.get("a", key -> key);
+
+        cache.setMaxSize(2);
+
+        assertEquals(2, cache.getMaxSize());
+        assertEquals(2, cache.size());
+        // "b" has been evicted
+        cache.get("b", key -> key);
+        assertEquals(4, cache.getMissCount());
+        assertThrows(IllegalArgumentException.class, () -> cache.setMaxSize(0));
+    }
+}